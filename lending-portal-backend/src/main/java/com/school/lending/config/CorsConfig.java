@@ -1,5 +1,6 @@
 package com.school.lending.config;
 
+import com.school.lending.dto.PageCursor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.beans.factory.annotation.Value;
@@ -38,7 +39,7 @@ public class CorsConfig {
         cfg.setAllowedOrigins(allowed);
         cfg.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         cfg.setAllowedHeaders(Arrays.asList("*"));
-        cfg.setExposedHeaders(Arrays.asList("X-Auth-Token"));
+        cfg.setExposedHeaders(Arrays.asList("X-Auth-Token", PageCursor.NEXT_CURSOR_HEADER, "ETag"));
         cfg.setMaxAge(3600L);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
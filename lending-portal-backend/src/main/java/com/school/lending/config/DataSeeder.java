@@ -9,6 +9,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * Seeds initial data into the database on application startup.
  *
@@ -37,16 +39,18 @@ public class DataSeeder implements CommandLineRunner {
     @Override
     public void run(String... args) {
         if (userRepository.count() == 0) {
-            userRepository.save(new UserAccount("ram", passwordEncoder.encode("ram@123"), UserRole.STUDENT, "Sai Ram"));
-            userRepository.save(new UserAccount("suresh", passwordEncoder.encode("suresh@123"), UserRole.STAFF, "Suresh Babu"));
-            userRepository.save(new UserAccount("prakash", passwordEncoder.encode("prakash@123"), UserRole.ADMIN, "Prakash Raj"));
+            userRepository.saveAll(List.of(
+                    new UserAccount("ram", passwordEncoder.encode("ram@123"), UserRole.STUDENT, "Sai Ram"),
+                    new UserAccount("suresh", passwordEncoder.encode("suresh@123"), UserRole.STAFF, "Suresh Babu"),
+                    new UserAccount("prakash", passwordEncoder.encode("prakash@123"), UserRole.ADMIN, "Prakash Raj")));
         }
 
         if (equipmentRepository.count() == 0) {
-            equipmentRepository.save(new Equipment("Canon EOS 80D", "Camera", "Needs strap replacement", 5, 5));
-            equipmentRepository.save(new Equipment("Basketball Kit", "Sports", "Used but intact", 20, 18));
-            equipmentRepository.save(new Equipment("Chemistry Lab Set", "Lab", "Glassware missing 2 test tubes", 10, 9));
-            equipmentRepository.save(new Equipment("Acoustic Guitar", "Music", "Strings replaced recently", 3, 3));
+            equipmentRepository.saveAll(List.of(
+                    new Equipment("Canon EOS 80D", "Camera", "Needs strap replacement", 5, 5),
+                    new Equipment("Basketball Kit", "Sports", "Used but intact", 20, 18),
+                    new Equipment("Chemistry Lab Set", "Lab", "Glassware missing 2 test tubes", 10, 9),
+                    new Equipment("Acoustic Guitar", "Music", "Strings replaced recently", 3, 3)));
         }
     }
 }
@@ -0,0 +1,28 @@
+package com.school.lending.config;
+
+import com.school.lending.security.CurrentUserArgumentResolver;
+import com.school.lending.security.RoleCheckInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Spring MVC customisation: injects the authenticated account into
+ * {@code @CurrentUser} parameters and enforces {@code @RequireRole}.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentUserArgumentResolver());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RoleCheckInterceptor()).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,132 @@
+package com.school.lending.controller;
+
+import com.school.lending.model.UserRole;
+import com.school.lending.security.JwtUtil;
+import com.school.lending.security.PasswordWorker;
+import com.school.lending.security.RequireRole;
+import com.school.lending.security.RevocationList;
+import com.school.lending.service.AuthService;
+import com.school.lending.service.AvailabilityCalendar;
+import com.school.lending.service.AvailabilityIndex;
+import com.school.lending.service.CatalogSnapshot;
+import com.school.lending.service.EquipmentCache;
+import com.school.lending.web.StreamHub;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequireRole(UserRole.ADMIN)
+public class AdminController {
+
+    /**
+     * Operational endpoints for administrators: consistency checks and
+     * maintenance of in-memory structures. All operations require ADMIN.
+     */
+
+    private final AvailabilityIndex availabilityIndex;
+    private final JwtUtil jwtUtil;
+    private final AuthService authService;
+    private final PasswordWorker passwordWorker;
+    private final RevocationList revocationList;
+    private final EquipmentCache equipmentCache;
+    private final CatalogSnapshot catalogSnapshot;
+    private final StreamHub streamHub;
+    private final AvailabilityCalendar availabilityCalendar;
+
+    public AdminController(AvailabilityIndex availabilityIndex, JwtUtil jwtUtil, AuthService authService,
+                           PasswordWorker passwordWorker, RevocationList revocationList,
+                           EquipmentCache equipmentCache, CatalogSnapshot catalogSnapshot, StreamHub streamHub,
+                           AvailabilityCalendar availabilityCalendar) {
+        this.availabilityIndex = availabilityIndex;
+        this.jwtUtil = jwtUtil;
+        this.authService = authService;
+        this.passwordWorker = passwordWorker;
+        this.revocationList = revocationList;
+        this.equipmentCache = equipmentCache;
+        this.catalogSnapshot = catalogSnapshot;
+        this.streamHub = streamHub;
+        this.availabilityCalendar = availabilityCalendar;
+    }
+
+    @GetMapping("/stats")
+    /**
+     * Report in-process counters for caches and worker pools on this node.
+     *
+     * @return map of component name to its counters
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> jwtCache = new HashMap<>();
+        jwtCache.put("hits", jwtUtil.getCacheHits());
+        jwtCache.put("misses", jwtUtil.getCacheMisses());
+        jwtCache.put("size", jwtUtil.getCacheSize());
+        Map<String, Object> passwordHashing = new HashMap<>();
+        passwordHashing.put("queueDepth", passwordWorker.getQueueDepth());
+        passwordHashing.put("active", passwordWorker.getActiveCount());
+        passwordHashing.put("rejected", passwordWorker.getRejectedCount());
+        passwordHashing.put("hashes", passwordWorker.getHashCount());
+        passwordHashing.put("avgMillis", passwordWorker.getAverageHashMillis());
+        passwordHashing.put("maxMillis", passwordWorker.getMaxHashMillis());
+        Map<String, Object> catalogCache = new HashMap<>();
+        catalogCache.put("hits", equipmentCache.getHits());
+        catalogCache.put("misses", equipmentCache.getMisses());
+        catalogCache.put("hitRate", equipmentCache.getHitRate());
+        catalogCache.put("rows", equipmentCache.getRowCount());
+        catalogCache.put("queries", equipmentCache.getQueryCount());
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("hits", catalogSnapshot.getHits());
+        snapshot.put("rebuilds", catalogSnapshot.getRebuilds());
+        snapshot.put("views", catalogSnapshot.getViewCount());
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("connections", streamHub.getConnectionCount());
+        stream.put("dropped", streamHub.getDroppedCount());
+        Map<String, Object> body = new HashMap<>();
+        body.put("jwtCache", jwtCache);
+        body.put("stream", stream);
+        body.put("catalogSnapshot", snapshot);
+        body.put("equipmentCache", catalogCache);
+        body.put("passwordHashing", passwordHashing);
+        body.put("revokedTokens", revocationList.size());
+        body.put("availabilityCalendars", availabilityCalendar.getCacheSize());
+        return body;
+    }
+
+    @GetMapping("/availability-index/check")
+    /**
+     * Compare the in-memory availability index with the SQL overlap query.
+     *
+     * @return map with a "consistent" flag and the list of mismatches found
+     */
+    public Map<String, Object> checkAvailabilityIndex() {
+        List<String> problems = availabilityIndex.selfCheck();
+        Map<String, Object> body = new HashMap<>();
+        body.put("consistent", problems.isEmpty());
+        body.put("problems", problems);
+        return body;
+    }
+
+    @PostMapping("/availability-index/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    /**
+     * Rebuild the availability index from the database.
+     */
+    public void rebuildAvailabilityIndex() {
+        availabilityIndex.rebuild();
+    }
+
+    @PostMapping("/users/{id}/revoke-tokens")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    /**
+     * End all sessions of a user: access tokens issued so far and all refresh
+     * tokens are revoked.
+     *
+     * @param id id of the user
+     */
+    public void revokeTokens(@PathVariable Long id) {
+        authService.revokeTokens(id);
+    }
+}
@@ -2,9 +2,14 @@ package com.school.lending.controller;
 
 import com.school.lending.dto.LoginRequest;
 import com.school.lending.dto.LoginResponse;
+import com.school.lending.dto.RefreshRequest;
 import com.school.lending.dto.SignupRequest;
 import com.school.lending.model.UserAccount;
+import com.school.lending.security.CurrentUser;
+import com.school.lending.security.JwtAuthFilter;
 import com.school.lending.service.AuthService;
+import com.school.lending.service.RefreshTokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -23,9 +28,11 @@ public class AuthController {
      */
 
     private final AuthService authService;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthController(AuthService authService) {
+    public AuthController(AuthService authService, RefreshTokenService refreshTokenService) {
         this.authService = authService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/login")
@@ -49,6 +56,7 @@ public class AuthController {
         }
         LoginResponse resp = new LoginResponse();
         resp.token = token;
+        resp.refreshToken = refreshTokenService.issue(account);
         resp.username = account.getUsername();
         resp.displayName = account.getDisplayName();
         resp.role = account.getRole().name();
@@ -76,21 +84,61 @@ public class AuthController {
         resp.displayName = created.getDisplayName();
         resp.role = created.getRole().name();
         resp.token = authService.issueToken(created);
+        resp.refreshToken = refreshTokenService.issue(created);
         return resp;
     }
 
+    @PostMapping("/refresh")
+    /**
+     * Exchange a refresh token for a new access token and a new refresh
+     * token, without checking the password again.
+     *
+     * @param request body carrying the current refresh token
+     * @return LoginResponse with both new tokens and user info
+     * @throws org.springframework.web.server.ResponseStatusException with
+     *         HttpStatus.UNAUTHORIZED when the refresh token is invalid,
+     *         expired or has already been used
+     */
+    public LoginResponse refresh(@RequestBody RefreshRequest request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService
+                .rotate(request == null ? null : request.refreshToken)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "refresh token rejected"));
+        UserAccount account = rotation.user();
+        LoginResponse resp = new LoginResponse();
+        resp.token = authService.issueToken(account);
+        resp.refreshToken = rotation.refreshToken();
+        resp.username = account.getUsername();
+        resp.displayName = account.getDisplayName();
+        resp.role = account.getRole().name();
+        return resp;
+    }
+
+    @PostMapping("/logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    /**
+     * End the current session. The access token is revoked until it expires
+     * and the refresh token, when supplied, is revoked with its family.
+     *
+     * @param http    the request; its access token is read the way
+     *                {@link JwtAuthFilter} reads it
+     * @param request optional body carrying the refresh token
+     */
+    public void logout(HttpServletRequest http, @RequestBody(required = false) RefreshRequest request) {
+        authService.logout(JwtAuthFilter.resolveToken(http), request == null ? null : request.refreshToken);
+    }
+
     @GetMapping("/me")
     /**
      * Return information about the currently authenticated user based on token.
      *
-     * @param token the X-Auth-Token header value
+     * @param found the authenticated user
+     * @param token the X-Auth-Token header value, echoed back when present
      * @return LoginResponse for the user represented by the token
      * @throws org.springframework.web.server.ResponseStatusException with
      *         HttpStatus.UNAUTHORIZED when token is missing or invalid
      */
-    public LoginResponse whoAmI(@RequestHeader(value = "X-Auth-Token", required = false) String token) {
-        UserAccount found = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid or missing token"));
+    public LoginResponse whoAmI(@CurrentUser UserAccount found,
+                                @RequestHeader(value = "X-Auth-Token", required = false) String token) {
         LoginResponse resp = new LoginResponse();
         resp.username = found.getUsername();
         resp.displayName = found.getDisplayName();
@@ -1,16 +1,30 @@
 package com.school.lending.controller;
 
+import com.school.lending.dto.BatchDecision;
 import com.school.lending.dto.BorrowCreateRequest;
+import com.school.lending.dto.CursorPage;
 import com.school.lending.dto.DecisionInput;
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.dto.PageCursor;
+import com.school.lending.dto.RequestFilter;
+import com.school.lending.dto.Slot;
 import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.BorrowStatus;
 import com.school.lending.model.Equipment;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
-import com.school.lending.service.AuthService;
+import com.school.lending.security.CurrentUser;
+import com.school.lending.security.RequireRole;
+import com.school.lending.service.AvailabilityCalendar;
 import com.school.lending.service.BorrowRequestService;
+import com.school.lending.service.CollectionVersions;
 import com.school.lending.service.EquipmentService;
+import com.school.lending.web.ScheduleConflictException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
@@ -27,39 +41,77 @@ public class BorrowController {
          * users to approve, issue, reject or mark requests as returned.
          */
 
-    private final AuthService authService;
+    /** Most decisions accepted in one batch. */
+    static final int MAX_BATCH = 500;
+
     private final BorrowRequestService borrowService;
     private final EquipmentService equipmentService;
+    private final CollectionVersions versions;
+    private final AvailabilityCalendar availabilityCalendar;
 
-    public BorrowController(AuthService authService,
-                            BorrowRequestService borrowService,
-                            EquipmentService equipmentService) {
-        this.authService = authService;
+    public BorrowController(BorrowRequestService borrowService,
+                            EquipmentService equipmentService,
+                            CollectionVersions versions,
+                            AvailabilityCalendar availabilityCalendar) {
         this.borrowService = borrowService;
         this.equipmentService = equipmentService;
+        this.versions = versions;
+        this.availabilityCalendar = availabilityCalendar;
     }
 
     @GetMapping
         /**
-         * Browse borrow requests. Students only see their own requests; staff/admin
-         * can see all requests. The optional "mine" query parameter forces
-         * filtering to the requesting user's records.
+         * Browse borrow requests, newest first, one page at a time. Students only
+         * see their own requests; staff/admin can see all requests. The optional
+         * "mine" query parameter forces filtering to the requesting user's
+         * records. When more rows follow, the cursor for the next page is
+         * returned in the X-Next-Cursor header.
+         *
+         * <p>Requests embed their equipment, so the ETag combines the request
+         * and equipment versions with the caller and filters; a matching
+         * If-None-Match is answered 304 without querying.
          *
-         * @param token    X-Auth-Token header
-         * @param mineOnly whether to return only the caller's requests
-         * @return list of matching BorrowRequest
+         * @param account     authenticated caller
+         * @param mineOnly    whether to return only the caller's requests
+         * @param status      optional status filter
+         * @param equipmentId optional equipment filter
+         * @param from        optional start of a date range the request must overlap
+         * @param to          optional end of a date range the request must overlap
+         * @param cursor      cursor from the previous page
+         * @param limit       page size (default 50, max 200)
+         * @param webRequest  used to evaluate If-None-Match
+         * @return page of matching BorrowRequest, or null when not modified
          */
-        public List<BorrowRequest> browse(@RequestHeader("X-Auth-Token") String token,
-                                                                          @RequestParam(value = "mine", defaultValue = "false") boolean mineOnly) {
-        UserAccount account = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
-        if (mineOnly || account.getRole() == UserRole.STUDENT) {
-            return borrowService.findMine(account.getId());
+        public ResponseEntity<List<BorrowRequest>> browse(@CurrentUser UserAccount account,
+                                                          @RequestParam(value = "mine", defaultValue = "false") boolean mineOnly,
+                                                          @RequestParam(value = "status", required = false) BorrowStatus status,
+                                                          @RequestParam(value = "equipmentId", required = false) Long equipmentId,
+                                                          @RequestParam(value = "from", required = false)
+                                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                          @RequestParam(value = "to", required = false)
+                                                          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                                          WebRequest webRequest) {
+        boolean seesAll = !mineOnly
+                && (account.getRole() == UserRole.STAFF || account.getRole() == UserRole.ADMIN);
+        RequestFilter filter = new RequestFilter(seesAll ? null : account.getId(), status, equipmentId, from, to);
+        String etag = CollectionVersions.etag(versions.requests() + "." + versions.equipment(),
+                account.getId(), filter, cursor, PageCursor.clampLimit(limit));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPage<BorrowRequest> page;
+        try {
+            page = borrowService.findPage(filter, cursor, PageCursor.clampLimit(limit));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad cursor");
         }
-        if (account.getRole() == UserRole.STAFF || account.getRole() == UserRole.ADMIN) {
-            return borrowService.findAll();
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag).cacheControl(CollectionVersions.REVALIDATE);
+        if (page.nextCursor() != null) {
+            ok.header(PageCursor.NEXT_CURSOR_HEADER, page.nextCursor());
         }
-        return borrowService.findMine(account.getId());
+        return ok.body(page.items());
     }
 
     @PostMapping
@@ -68,14 +120,17 @@ public class BorrowController {
          * Create a new borrow request for a specific equipment item and date range.
          * Validates quantity and checks for scheduling/stock conflicts.
          *
-         * @param token   X-Auth-Token header of the requester
-         * @param payload borrow creation details (equipmentId, dates, qty)
-         * @return created BorrowRequest
+         * @param account authenticated requester
+         * @param payload borrow creation details (equipmentId, dates, qty and
+         *                whether to join the waitlist when fully booked)
+         * @return created BorrowRequest, WAITLISTED when it did not fit and the
+         *         caller opted in
+         * @throws ScheduleConflictException (409) when the booking does not fit
+         *         and is not waitlisted; its body suggests the earliest range of
+         *         the same length that does
          */
-        public BorrowRequest newRequest(@RequestHeader("X-Auth-Token") String token,
+        public BorrowRequest newRequest(@CurrentUser UserAccount account,
                                                                         @RequestBody BorrowCreateRequest payload) {
-        UserAccount account = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
         if (payload == null || payload.equipmentId == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "missing gear info");
         }
@@ -88,49 +143,64 @@ public class BorrowController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be positive");
         }
         if (borrowService.isConflicting(equipment.getId(), start, end, qty, null)) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "schedule clash / out of stock");
+            if (Boolean.TRUE.equals(payload.waitlist) && qty <= equipment.getTotalQuantity()) {
+                return borrowService.waitlistRequest(account, equipment, start, end, qty);
+            }
+            throw new ScheduleConflictException(firstSlot(equipment.getId(), start, end, qty));
         }
         return borrowService.createRequest(account, equipment, start, end, qty);
     }
 
     @PostMapping("/{id}/approve")
+    @RequireRole(value = {UserRole.STAFF, UserRole.ADMIN}, message = "students can't approve")
         /**
          * Approve a pending borrow request. Only staff/admin may approve.
          *
-         * @param token approver's X-Auth-Token
          * @param id    id of the borrow request to approve
          * @param note  optional decision note
          * @return the updated BorrowRequest if approval succeeded
          */
-        public BorrowRequest approve(@RequestHeader("X-Auth-Token") String token,
-                                                                 @PathVariable Long id,
+        public BorrowRequest approve(@PathVariable Long id,
                                                                  @RequestBody(required = false) DecisionInput note) {
-        UserAccount approver = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
-        if (approver.getRole() == UserRole.STUDENT) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "students can't approve");
-        }
         BorrowRequest request = borrowService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "request missing"));
         return borrowService.approveRequest(request, note == null ? null : note.message)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "cannot approve"));
     }
 
+    @PostMapping("/decisions")
+    @RequireRole(value = {UserRole.STAFF, UserRole.ADMIN}, message = "students can't approve")
+        /**
+         * Approve or reject many requests in one call. Each item's requests
+         * are decided together in one transaction; approvals are granted
+         * oldest first while stock lasts. Only staff/admin may decide.
+         *
+         * @param decisions list of request ids with the action to take
+         * @return one outcome per distinct id, in input order
+         * @throws org.springframework.web.server.ResponseStatusException with
+         *         HttpStatus.BAD_REQUEST when the list is empty, too long or
+         *         has an entry without id or action
+         */
+        public List<DecisionOutcome> decideBatch(@RequestBody List<BatchDecision> decisions) {
+        if (decisions == null || decisions.isEmpty() || decisions.size() > MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "between 1 and " + MAX_BATCH + " decisions expected");
+        }
+        if (decisions.stream().anyMatch(d -> d == null || d.id == null || d.action == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "every decision needs an id and an action");
+        }
+        return borrowService.decideBatch(decisions);
+    }
+
     @PostMapping("/{id}/issue")
+    @RequireRole(value = {UserRole.STAFF, UserRole.ADMIN}, message = "students can't issue")
         /**
          * Issue (hand out) an approved borrow request. Only staff/admin may issue.
          *
-         * @param token issuer's X-Auth-Token
          * @param id    id of the borrow request to issue
          * @return the updated BorrowRequest if issue succeeded
          */
-        public BorrowRequest issue(@RequestHeader("X-Auth-Token") String token,
-                                                           @PathVariable Long id) {
-        UserAccount issuer = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
-        if (issuer.getRole() == UserRole.STUDENT) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "students can't issue");
-        }
+        public BorrowRequest issue(@PathVariable Long id) {
         BorrowRequest request = borrowService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "request missing"));
         return borrowService.issue(request)
@@ -138,22 +208,16 @@ public class BorrowController {
     }
 
     @PostMapping("/{id}/reject")
+    @RequireRole(value = {UserRole.STAFF, UserRole.ADMIN}, message = "students can't reject")
         /**
          * Reject a borrow request. Only staff/admin may reject.
          *
-         * @param token approver's X-Auth-Token
          * @param id    id of the borrow request to reject
          * @param note  optional reason for rejection
          * @return the updated BorrowRequest if rejection succeeded
          */
-        public BorrowRequest reject(@RequestHeader("X-Auth-Token") String token,
-                                                                @PathVariable Long id,
+        public BorrowRequest reject(@PathVariable Long id,
                                                                 @RequestBody(required = false) DecisionInput note) {
-        UserAccount decider = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
-        if (decider.getRole() == UserRole.STUDENT) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "students can't reject");
-        }
         BorrowRequest request = borrowService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "request missing"));
         return borrowService.reject(request, note == null ? null : note.message)
@@ -161,24 +225,30 @@ public class BorrowController {
     }
 
     @PostMapping("/{id}/return")
+    @RequireRole(value = {UserRole.STAFF, UserRole.ADMIN}, message = "students can't close tickets")
         /**
          * Mark an issued borrow request as returned and restore equipment
          * availability. Only staff/admin may perform this action.
          *
-         * @param token X-Auth-Token of the caller
          * @param id    id of the borrow request to mark returned
          * @return the updated BorrowRequest if operation succeeded
          */
-        public BorrowRequest markReturned(@RequestHeader("X-Auth-Token") String token,
-                                                                          @PathVariable Long id) {
-        UserAccount decider = authService.findUserByToken(token)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "invalid token"));
-        if (decider.getRole() == UserRole.STUDENT) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "students can't close tickets");
-        }
+        public BorrowRequest markReturned(@PathVariable Long id) {
         BorrowRequest request = borrowService.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "request missing"));
         return borrowService.markReturned(request)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "cannot return now"));
     }
+
+    private Slot firstSlot(Long equipmentId, LocalDate start, LocalDate end, int qty) {
+        int days = (int) (end.toEpochDay() - start.toEpochDay() + 1);
+        if (days <= 0 || days > AvailabilityCalendar.MAX_DAYS) {
+            return null;
+        }
+        LocalDate from = start.isBefore(LocalDate.now()) ? LocalDate.now() : start;
+        return availabilityCalendar.nextSlots(equipmentId, qty, days, from, 1)
+                .filter(slots -> !slots.isEmpty())
+                .map(slots -> slots.get(0))
+                .orElse(null);
+    }
 }
@@ -1,15 +1,30 @@
 package com.school.lending.controller;
 
+import com.school.lending.dto.CursorPage;
+import com.school.lending.dto.DailyAvailability;
 import com.school.lending.dto.EquipmentInput;
+import com.school.lending.dto.PageCursor;
+import com.school.lending.dto.Slot;
+import com.school.lending.dto.WindowAvailability;
 import com.school.lending.model.Equipment;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
-import com.school.lending.service.AuthService;
+import com.school.lending.security.CurrentUser;
+import com.school.lending.security.RequireRole;
+import com.school.lending.service.AvailabilityCalendar;
+import com.school.lending.service.CatalogSnapshot;
+import com.school.lending.service.CollectionVersions;
 import com.school.lending.service.EquipmentService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -24,45 +39,183 @@ public class EquipmentController {
      */
 
     private final EquipmentService equipmentService;
-    private final AuthService authService;
+    private final CollectionVersions versions;
+    private final CatalogSnapshot catalogSnapshot;
+    private final AvailabilityCalendar availabilityCalendar;
 
-    public EquipmentController(EquipmentService equipmentService, AuthService authService) {
+    public EquipmentController(EquipmentService equipmentService, CollectionVersions versions,
+                               CatalogSnapshot catalogSnapshot, AvailabilityCalendar availabilityCalendar) {
         this.equipmentService = equipmentService;
-        this.authService = authService;
+        this.versions = versions;
+        this.catalogSnapshot = catalogSnapshot;
+        this.availabilityCalendar = availabilityCalendar;
     }
 
     @GetMapping
     /**
-     * List equipment items. Optionally filter by category or availability.
+     * List equipment items ordered by id, one page at a time. Optionally
+     * filter by category or availability. When more items follow, the cursor
+     * for the next page is returned in the X-Next-Cursor header.
      *
-     * @param token         optional X-Auth-Token header to validate caller
+     * <p>Responses carry an ETag derived from the catalog version; a request
+     * whose If-None-Match still matches is answered 304 without querying.
+     * Otherwise the body is written from the pre-encoded
+     * {@link CatalogSnapshot}, gzip-compressed when the client accepts it.
+     *
+     * @param user          authenticated caller
      * @param category      optional category to filter by (case-insensitive)
      * @param availableOnly when true, only items with available quantity > 0 are returned
-     * @return list of equipment matching filters
+     * @param cursor        cursor from the previous page
+     * @param limit         page size (default 50, max 200)
+     * @param acceptEncoding the Accept-Encoding header
+     * @param webRequest    used to evaluate If-None-Match
+     * @return JSON page of equipment matching filters, or null when not modified
+     */
+    public ResponseEntity<byte[]> list(@CurrentUser UserAccount user,
+                                                @RequestParam(value = "category", required = false) String category,
+                                                @RequestParam(value = "availableOnly", defaultValue = "false") boolean availableOnly,
+                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", required = false) Integer limit,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                WebRequest webRequest) {
+        boolean acceptsGzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = CollectionVersions.etag(String.valueOf(versions.equipment()),
+                category == null ? null : Equipment.keyFor(category), availableOnly, cursor, PageCursor.clampLimit(limit),
+                acceptsGzip);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        CatalogSnapshot.View view;
+        try {
+            view = catalogSnapshot.view(category, availableOnly, cursor, PageCursor.clampLimit(limit));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad cursor");
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CollectionVersions.REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (view.nextCursor() != null) {
+            ok.header(PageCursor.NEXT_CURSOR_HEADER, view.nextCursor());
+        }
+        if (acceptsGzip && view.gzip() != null) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(view.gzip());
+        }
+        return ok.body(view.json());
+    }
+
+    @GetMapping(params = {"from", "to"})
+    /**
+     * List equipment like {@link #list}, with the quantity of each item that
+     * is still free for a booking covering {@code [from, to]}. The whole page
+     * costs one reservation query, however many items it holds.
+     *
+     * <p>The ETag follows both the catalog and the request versions, since a
+     * decision on any booking can change the free quantities.
+     *
+     * @param user       authenticated caller
+     * @param category   optional category to filter by (case-insensitive)
+     * @param from       first day of the window (inclusive)
+     * @param to         last day of the window (inclusive)
+     * @param cursor     cursor from the previous page
+     * @param limit      page size (default 50, max 200)
+     * @param webRequest used to evaluate If-None-Match
+     * @return page of items with their free quantity, or null when not modified
+     * @throws org.springframework.web.server.ResponseStatusException with
+     *         HttpStatus.BAD_REQUEST when the window or cursor is invalid
+     */
+    public ResponseEntity<List<WindowAvailability>> listForWindow(
+            @CurrentUser UserAccount user,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest webRequest) {
+        String etag = CollectionVersions.etag(versions.equipment() + "." + versions.requests(),
+                category == null ? null : Equipment.keyFor(category), from, to, cursor, PageCursor.clampLimit(limit));
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        CursorPage<Equipment> page;
+        List<WindowAvailability> items;
+        try {
+            page = equipmentService.listPage(category, false, cursor, PageCursor.clampLimit(limit));
+            items = availabilityCalendar.forWindow(page.items(), from, to);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().eTag(etag).cacheControl(CollectionVersions.REVALIDATE);
+        if (page.nextCursor() != null) {
+            ok.header(PageCursor.NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return ok.body(items);
+    }
+
+    @GetMapping("/{id}/availability")
+    /**
+     * Free quantity of an item on each day of a date range, so clients can
+     * offer dates that will not be refused.
+     *
+     * @param id   id of the equipment
+     * @param from first day (inclusive)
+     * @param to   last day (inclusive), at most 366 days after from
+     * @return per-day free quantity
+     * @throws org.springframework.web.server.ResponseStatusException with
+     *         HttpStatus.NOT_FOUND when the item does not exist, or
+     *         HttpStatus.BAD_REQUEST when the range is invalid
      */
-    public List<Equipment> list(@RequestHeader(value = "X-Auth-Token", required = false) String token,
-                                @RequestParam(value = "category", required = false) String category,
-                                @RequestParam(value = "availableOnly", defaultValue = "false") boolean availableOnly) {
-        authService.findUserByToken(token).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED, "log in first"));
-        return equipmentService.listAll(category, availableOnly);
+    public DailyAvailability availability(@PathVariable Long id,
+                                          @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return availabilityCalendar.forItem(id, from, to)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "missing"));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}/slots")
+    /**
+     * Earliest date ranges in which a booking of the given quantity and
+     * length would be accepted, so students can pick one instead of retrying
+     * dates by hand.
+     *
+     * @param id    id of the equipment
+     * @param qty   units wanted (default 1)
+     * @param days  length of the booking in days
+     * @param from  earliest first day (default today)
+     * @param count number of ranges wanted (default 3, max 10)
+     * @return ranges in start order; empty when nothing fits within the search horizon
+     * @throws org.springframework.web.server.ResponseStatusException with
+     *         HttpStatus.NOT_FOUND when the item does not exist, or
+     *         HttpStatus.BAD_REQUEST when a parameter is out of range
+     */
+    public List<Slot> slots(@PathVariable Long id,
+                            @RequestParam(value = "qty", defaultValue = "1") int qty,
+                            @RequestParam("days") int days,
+                            @RequestParam(value = "from", required = false)
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                            @RequestParam(value = "count", defaultValue = "3") int count) {
+        try {
+            return availabilityCalendar.nextSlots(id, qty, days, from == null ? LocalDate.now() : from, count)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "missing"));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
     }
 
     @PostMapping
+    @RequireRole(UserRole.ADMIN)
     /**
      * Create a new equipment record. Only ADMIN users may create items.
      *
-     * @param token X-Auth-Token header of the caller
      * @param input equipment payload containing itemName, category and quantities
      * @return saved Equipment entity
      */
-    public Equipment create(@RequestHeader("X-Auth-Token") String token,
-                            @RequestBody EquipmentInput input) {
-        UserAccount user = authService.findUserByToken(token).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED, "log in first"));
-        if (user.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "not allowed");
-        }
+    public Equipment create(@RequestBody EquipmentInput input) {
         Equipment eq = new Equipment();
         eq.setItemName(input.itemName);
         eq.setCategory(input.category);
@@ -73,22 +226,16 @@ public class EquipmentController {
     }
 
     @PutMapping("/{id}")
+    @RequireRole(UserRole.ADMIN)
     /**
      * Update an existing equipment record. Only ADMIN users may update.
      *
-     * @param token X-Auth-Token header of the caller
      * @param id    id of the equipment to update
      * @param input fields to update (partial updates allowed)
      * @return updated Equipment entity
      */
-    public Equipment update(@RequestHeader("X-Auth-Token") String token,
-                            @PathVariable Long id,
+    public Equipment update(@PathVariable Long id,
                             @RequestBody EquipmentInput input) {
-        UserAccount user = authService.findUserByToken(token).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED, "log in first"));
-        if (user.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "not allowed");
-        }
         Equipment eq = equipmentService.findOne(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "missing"));
         if (input.itemName != null) {
@@ -110,20 +257,14 @@ public class EquipmentController {
     }
 
     @DeleteMapping("/{id}")
+    @RequireRole(UserRole.ADMIN)
     @ResponseStatus(HttpStatus.NO_CONTENT)
     /**
      * Delete an equipment record by id. Only ADMIN users may delete.
      *
-     * @param token X-Auth-Token header of the caller
      * @param id    id of the equipment to delete
      */
-    public void delete(@RequestHeader("X-Auth-Token") String token,
-                       @PathVariable Long id) {
-        UserAccount user = authService.findUserByToken(token).orElseThrow(() ->
-                new ResponseStatusException(HttpStatus.UNAUTHORIZED, "log in first"));
-        if (user.getRole() != UserRole.ADMIN) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "not allowed");
-        }
+    public void delete(@PathVariable Long id) {
         equipmentService.deleteById(id);
     }
 }
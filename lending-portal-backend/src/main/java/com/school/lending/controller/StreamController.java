@@ -0,0 +1,43 @@
+package com.school.lending.controller;
+
+import com.school.lending.model.UserAccount;
+import com.school.lending.security.CurrentUser;
+import com.school.lending.web.StreamHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+public class StreamController {
+
+    /**
+     * Server-Sent Events stream of live changes, so clients can update lists
+     * in place instead of polling them.
+     */
+
+    private final StreamHub streamHub;
+
+    public StreamController(StreamHub streamHub) {
+        this.streamHub = streamHub;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    /**
+     * Open a stream. Emits {@code stock} events ({@code equipmentId},
+     * {@code availableQuantity}) for every item and {@code request} events
+     * ({@code requestId}, {@code equipmentId}, {@code status}) for the
+     * caller's own requests, or all requests for staff/admin.
+     *
+     * @param user authenticated caller
+     * @return the event stream
+     * @throws org.springframework.web.server.ResponseStatusException with
+     *         HttpStatus.SERVICE_UNAVAILABLE when this node has no free
+     *         connection slots
+     */
+    public SseEmitter stream(@CurrentUser UserAccount user) {
+        return streamHub.open(user);
+    }
+}
@@ -0,0 +1,24 @@
+package com.school.lending.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * One entry of a batch of staff decisions.
+ */
+public class BatchDecision {
+
+    public enum Action {
+        APPROVE,
+        REJECT
+    }
+
+    @NotNull(message = "id is required")
+    public Long id;
+
+    @NotNull(message = "action is required")
+    public Action action;
+
+    @Size(max = 1024, message = "note too long")
+    public String note;
+}
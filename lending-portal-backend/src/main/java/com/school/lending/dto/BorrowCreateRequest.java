@@ -19,4 +19,7 @@ public class BorrowCreateRequest {
 
     @Min(value = 1, message = "qty must be at least 1")
     public Integer qty;
+
+    /** Queue the request as WAITLISTED instead of failing when the dates are fully booked. */
+    public Boolean waitlist;
 }
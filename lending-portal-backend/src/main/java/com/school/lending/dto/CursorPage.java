@@ -0,0 +1,12 @@
+package com.school.lending.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * @param items      rows of this page
+ * @param nextCursor cursor for the following page, or null on the last page
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
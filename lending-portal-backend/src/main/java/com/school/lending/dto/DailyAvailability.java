@@ -0,0 +1,23 @@
+package com.school.lending.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Free quantity of one equipment item on each day of a date range.
+ *
+ * @param equipmentId   id of the item
+ * @param from          first day of the range (inclusive)
+ * @param to            last day of the range (inclusive)
+ * @param totalQuantity units the item owns
+ * @param days          one entry per day, in date order
+ */
+public record DailyAvailability(Long equipmentId, LocalDate from, LocalDate to, int totalQuantity, List<Day> days) {
+
+    /**
+     * @param date day
+     * @param free units not held by an approved or issued booking on that day
+     */
+    public record Day(LocalDate date, int free) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.school.lending.dto;
+
+import com.school.lending.model.BorrowStatus;
+
+/**
+ * Result of one entry of a batch of decisions.
+ *
+ * @param id     id of the borrow request
+ * @param result what happened to it
+ * @param status status of the request afterwards, or null when it was not found
+ */
+public record DecisionOutcome(Long id, Result result, BorrowStatus status) {
+
+    public enum Result {
+        /** The decision was applied. */
+        APPLIED,
+        /** Approval refused: not enough stock left for the dates. */
+        NO_CAPACITY,
+        /** The request's current status does not allow the decision. */
+        INVALID_STATE,
+        /** The request kept changing concurrently; reload and retry. */
+        CHANGED,
+        /** No request with that id. */
+        NOT_FOUND
+    }
+}
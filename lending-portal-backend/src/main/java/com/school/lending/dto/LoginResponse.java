@@ -2,6 +2,7 @@ package com.school.lending.dto;
 
 public class LoginResponse {
     public String token;
+    public String refreshToken;
     public String username;
     public String displayName;
     public String role;
@@ -0,0 +1,59 @@
+package com.school.lending.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursors handed to clients for paging through lists.
+ *
+ * <p>A cursor is the sort key of the last row of a page, base64url encoded
+ * so clients treat it as a token rather than something to construct. The
+ * next page continues strictly after that key, so rows inserted meanwhile
+ * never shift or repeat results the way OFFSET paging does.
+ */
+public final class PageCursor {
+
+    /** Response header carrying the cursor of the next page, absent on the last page. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private PageCursor() {
+    }
+
+    /**
+     * Encode the parts of a sort key into a cursor.
+     */
+    public static String encode(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join("|", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode}.
+     *
+     * @param cursor raw cursor from the client
+     * @param parts  number of key parts expected
+     * @return the key parts
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    public static String[] decode(String cursor, int parts) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] split = raw.split("\\|", -1);
+        if (split.length != parts) {
+            throw new IllegalArgumentException("bad cursor");
+        }
+        return split;
+    }
+
+    /**
+     * Clamp a requested page size to {@code 1..MAX_LIMIT}.
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(MAX_LIMIT, limit));
+    }
+}
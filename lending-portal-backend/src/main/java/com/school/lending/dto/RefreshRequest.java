@@ -0,0 +1,9 @@
+package com.school.lending.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class RefreshRequest {
+
+    @NotBlank(message = "refreshToken is required")
+    public String refreshToken;
+}
@@ -0,0 +1,18 @@
+package com.school.lending.dto;
+
+import com.school.lending.model.BorrowStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Optional filters for listing borrow requests; null fields are ignored.
+ *
+ * @param requesterId only requests made by this user
+ * @param status      only requests in this status
+ * @param equipmentId only requests for this item
+ * @param from        only requests still running on or after this date
+ * @param to          only requests starting on or before this date
+ */
+public record RequestFilter(Long requesterId, BorrowStatus status, Long equipmentId,
+                            LocalDate from, LocalDate to) {
+}
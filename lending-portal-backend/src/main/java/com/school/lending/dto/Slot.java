@@ -0,0 +1,12 @@
+package com.school.lending.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A date range a booking could use.
+ *
+ * @param startDate first day (inclusive)
+ * @param endDate   last day (inclusive)
+ */
+public record Slot(LocalDate startDate, LocalDate endDate) {
+}
@@ -0,0 +1,13 @@
+package com.school.lending.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.school.lending.model.Equipment;
+
+/**
+ * A catalog item together with the quantity still free for a date window.
+ *
+ * @param item         the item, serialized with its usual fields
+ * @param freeQuantity units a new booking covering the whole window could take
+ */
+public record WindowAvailability(@JsonUnwrapped Equipment item, int freeQuantity) {
+}
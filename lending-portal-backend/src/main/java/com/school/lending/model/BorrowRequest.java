@@ -11,7 +11,8 @@ import java.time.OffsetDateTime;
 public class BorrowRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "borrow_requests_seq")
+    @SequenceGenerator(name = "borrow_requests_seq", sequenceName = "borrow_requests_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -37,8 +38,13 @@ public class BorrowRequest {
 
     private String decisionNote;
 
+    private String allocationNote;
+
     private OffsetDateTime createdAt = OffsetDateTime.now();
 
+    @Version
+    private Long version;
+
     public BorrowRequest() {
     }
 
@@ -58,6 +64,10 @@ public class BorrowRequest {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public UserAccount getRequester() {
         return requester;
     }
@@ -122,6 +132,14 @@ public class BorrowRequest {
         this.decisionNote = decisionNote;
     }
 
+    public String getAllocationNote() {
+        return allocationNote;
+    }
+
+    public void setAllocationNote(String allocationNote) {
+        this.allocationNote = allocationNote;
+    }
+
     public OffsetDateTime getCreatedAt() {
         return createdAt;
     }
@@ -2,6 +2,8 @@ package com.school.lending.model;
 
 public enum BorrowStatus {
     PENDING,
+    /** Fully booked when requested; promoted when stock for its dates frees up. */
+    WAITLISTED,
     APPROVED,
     REJECTED,
     ISSUED,
@@ -1,36 +1,58 @@
 package com.school.lending.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
+import java.util.Locale;
+
 @Entity
 @Table(name = "equipment")
 public class Equipment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "equipment_seq")
+    @SequenceGenerator(name = "equipment_seq", sequenceName = "equipment_seq", allocationSize = 50)
     private Long id;
 
     private String itemName;
 
     private String category;
 
+    /** Lower-cased copy of {@link #category}, indexed for case-insensitive lookups. */
+    @JsonIgnore
+    private String categoryKey;
+
     private String conditionNote;
 
     private int totalQuantity;
 
     private int availableQuantity;
 
+    @Version
+    private Long version;
+
     public Equipment() {
     }
 
     public Equipment(String itemName, String category, String conditionNote, int totalQuantity, int availableQuantity) {
         this.itemName = itemName;
-        this.category = category;
+        setCategory(category);
         this.conditionNote = conditionNote;
         this.totalQuantity = totalQuantity;
         this.availableQuantity = availableQuantity;
     }
 
+    /**
+     * Detached copy of this row, id and version included, so that a shared
+     * (cached) instance is never handed out to be modified.
+     */
+    public Equipment copy() {
+        Equipment c = new Equipment(itemName, category, conditionNote, totalQuantity, availableQuantity);
+        c.id = id;
+        c.version = version;
+        return c;
+    }
+
     public Long getId() {
         return id;
     }
@@ -39,6 +61,10 @@ public class Equipment {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public String getItemName() {
         return itemName;
     }
@@ -53,6 +79,14 @@ public class Equipment {
 
     public void setCategory(String category) {
         this.category = category;
+        this.categoryKey = keyFor(category);
+    }
+
+    /**
+     * Normalise a category for lookups against the indexed key column.
+     */
+    public static String keyFor(String category) {
+        return category == null ? null : category.toLowerCase(Locale.ROOT);
     }
 
     public String getConditionNote() {
@@ -0,0 +1,11 @@
+package com.school.lending.model;
+
+/**
+ * Id-only view of a borrow request, for jobs that only need to know which
+ * requests exist and which item each one is for.
+ *
+ * @param requestId   id of the borrow request
+ * @param equipmentId id of the requested equipment
+ */
+public record RequestRef(Long requestId, Long equipmentId) {
+}
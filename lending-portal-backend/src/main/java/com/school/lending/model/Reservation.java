@@ -0,0 +1,40 @@
+package com.school.lending.model;
+
+import java.time.LocalDate;
+
+/**
+ * Lightweight, immutable view of a booking that holds stock (APPROVED or
+ * ISSUED). Used by availability calculations so they do not need to carry
+ * full {@link BorrowRequest} entities around.
+ *
+ * @param requestId   id of the originating borrow request
+ * @param equipmentId id of the booked equipment
+ * @param startDate   first day of the booking (inclusive)
+ * @param endDate     last day of the booking (inclusive)
+ * @param qty         number of units booked
+ */
+public record Reservation(Long requestId, Long equipmentId, LocalDate startDate, LocalDate endDate, int qty) {
+
+    /**
+     * Build a reservation from a borrow request.
+     *
+     * @param request source request; its gear must be set
+     * @return reservation mirroring the request's dates and quantity
+     */
+    public static Reservation of(BorrowRequest request) {
+        return new Reservation(request.getId(), request.getGear().getId(),
+                request.getStartDate(), request.getEndDate(), request.getQty());
+    }
+
+    /**
+     * Check whether this reservation shares at least one day with the given
+     * inclusive range.
+     *
+     * @param start range start (inclusive)
+     * @param end   range end (inclusive)
+     * @return true when the ranges overlap
+     */
+    public boolean overlaps(LocalDate start, LocalDate end) {
+        return !startDate.isAfter(end) && !endDate.isBefore(start);
+    }
+}
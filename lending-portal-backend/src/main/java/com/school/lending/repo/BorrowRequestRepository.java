@@ -2,9 +2,17 @@ package com.school.lending.repo;
 
 import com.school.lending.model.BorrowRequest;
 import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.RequestRef;
+import com.school.lending.model.Reservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Collection;
 import java.util.List;
 
@@ -13,15 +21,34 @@ import java.util.List;
  *
  * <p>Provides helper finder methods used by service layer to query requests
  * by requester, status or equipment and to detect overlapping bookings.
+ *
+ * <p>Finders whose results are serialized to clients use an entity graph
+ * that loads the requester and equipment in the same statement, so rendering
+ * a list does not initialise two lazy proxies per row.
  */
 public interface BorrowRequestRepository extends JpaRepository<BorrowRequest, Long> {
 
+    /**
+     * Keyset start of the first {@link #findPage} page: later than any creation time.
+     */
+    OffsetDateTime FIRST_PAGE_KEY = OffsetDateTime.of(9999, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC);
+
+    /**
+     * Find all borrow requests, with requester and equipment fetched.
+     *
+     * @return list of BorrowRequest
+     */
+    @Override
+    @EntityGraph(attributePaths = {"requester", "gear"})
+    List<BorrowRequest> findAll();
+
     /**
      * Find all borrow requests created by a specific requester.
      *
      * @param requesterId id of the requester
      * @return list of BorrowRequest
      */
+    @EntityGraph(attributePaths = {"requester", "gear"})
     List<BorrowRequest> findByRequesterId(Long requesterId);
 
     /**
@@ -30,8 +57,20 @@ public interface BorrowRequestRepository extends JpaRepository<BorrowRequest, Lo
      * @param status desired BorrowStatus
      * @return list of BorrowRequest
      */
+    @EntityGraph(attributePaths = {"requester", "gear"})
     List<BorrowRequest> findByStatus(BorrowStatus status);
 
+    /**
+     * List the ids of the requests with the given status and of the item each
+     * one is for, oldest first, without loading the entities.
+     *
+     * @param status status to filter by
+     * @return id pairs of the matching requests
+     */
+    @Query("select new com.school.lending.model.RequestRef(r.id, r.gear.id) "
+            + "from BorrowRequest r where r.status = :status order by r.id")
+    List<RequestRef> findRefsByStatus(@Param("status") BorrowStatus status);
+
     /**
      * Find borrow requests for a specific gear item.
      *
@@ -55,4 +94,178 @@ public interface BorrowRequestRepository extends JpaRepository<BorrowRequest, Lo
      */
     List<BorrowRequest> findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
             Long gearId, Collection<BorrowStatus> statuses, LocalDate endDate, LocalDate startDate);
+
+    /**
+     * Load lightweight reservations for every request with one of the given
+     * statuses whose dates overlap the supplied range, across all equipment.
+     *
+     * <p>Used to (re)build in-memory availability structures without
+     * materialising full entities.
+     *
+     * @param statuses collection of BorrowStatus to include
+     * @param from     start of the range (inclusive)
+     * @param to       end of the range (inclusive)
+     * @return reservations overlapping the range
+     */
+    @Query("select new com.school.lending.model.Reservation(r.id, r.gear.id, r.startDate, r.endDate, r.qty) "
+            + "from BorrowRequest r "
+            + "where r.status in :statuses and r.startDate <= :to and r.endDate >= :from")
+    List<Reservation> findReservations(@Param("statuses") Collection<BorrowStatus> statuses,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+
+    /**
+     * Load lightweight reservations of one item whose dates overlap the
+     * supplied range. Served by the (equipment_id, status, start_date,
+     * end_date) index.
+     *
+     * @param equipmentId equipment id
+     * @param statuses    collection of BorrowStatus to include
+     * @param from        start of the range (inclusive)
+     * @param to          end of the range (inclusive)
+     * @return reservations of the item overlapping the range
+     */
+    @Query("select new com.school.lending.model.Reservation(r.id, r.gear.id, r.startDate, r.endDate, r.qty) "
+            + "from BorrowRequest r "
+            + "where r.gear.id = :equipmentId and r.status in :statuses "
+            + "and r.startDate <= :to and r.endDate >= :from")
+    List<Reservation> findItemReservations(@Param("equipmentId") Long equipmentId,
+                                           @Param("statuses") Collection<BorrowStatus> statuses,
+                                           @Param("from") LocalDate from,
+                                           @Param("to") LocalDate to);
+
+    /**
+     * Load lightweight reservations of several items whose dates overlap the
+     * supplied range, in one statement.
+     *
+     * @param equipmentIds equipment ids
+     * @param statuses     collection of BorrowStatus to include
+     * @param from         start of the range (inclusive)
+     * @param to           end of the range (inclusive)
+     * @return list of Reservation projections
+     */
+    @Query("select new com.school.lending.model.Reservation(r.id, r.gear.id, r.startDate, r.endDate, r.qty) "
+            + "from BorrowRequest r "
+            + "where r.gear.id in :equipmentIds and r.status in :statuses "
+            + "and r.startDate <= :to and r.endDate >= :from")
+    List<Reservation> findItemsReservations(@Param("equipmentIds") Collection<Long> equipmentIds,
+                                            @Param("statuses") Collection<BorrowStatus> statuses,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to);
+
+    /**
+     * Keyset page of borrow requests, newest first.
+     *
+     * <p>Each filter is skipped when its parameter is null. Rows continue
+     * strictly after the {@code (afterCreatedAt, afterId)} key of the previous
+     * page; pass nulls for the first page. Callers should request page 0 of
+     * the {@link Pageable} so no OFFSET is generated.
+     *
+     * <p>A single query with a {@code (:x is null or ...)} predicate per
+     * filter cannot use any index, so the page is read by one of the queries
+     * below, chosen by the most selective filter present: requester, then
+     * status, then equipment, then none. Each leads with a plain predicate
+     * its index can seek on; the remaining filters are checked on the rows
+     * the index yields. The first page seeks from {@link #FIRST_PAGE_KEY}.
+     *
+     * @return up to {@code pageable.getPageSize()} requests
+     */
+    default List<BorrowRequest> findPage(Long requesterId, BorrowStatus status, Long equipmentId,
+                                         LocalDate from, LocalDate to,
+                                         OffsetDateTime afterCreatedAt, Long afterId, Pageable pageable) {
+        if (afterCreatedAt == null || afterId == null) {
+            afterCreatedAt = FIRST_PAGE_KEY;
+            afterId = Long.MAX_VALUE;
+        }
+        if (requesterId != null) {
+            return findPageByRequester(requesterId, status, equipmentId, from, to, afterCreatedAt, afterId, pageable);
+        }
+        if (status != null) {
+            return findPageByStatus(status, equipmentId, from, to, afterCreatedAt, afterId, pageable);
+        }
+        if (equipmentId != null) {
+            return findPageByEquipment(equipmentId, from, to, afterCreatedAt, afterId, pageable);
+        }
+        return findPageUnfiltered(from, to, afterCreatedAt, afterId, pageable);
+    }
+
+    /**
+     * Page of one requester's requests; seeks on {@code ix_borrow_user_created}.
+     *
+     * @see #findPage
+     */
+    @EntityGraph(attributePaths = {"requester", "gear"})
+    @Query("select r from BorrowRequest r "
+            + "where r.requester.id = :requesterId "
+            + "and r.createdAt <= :afterCreatedAt and (r.createdAt < :afterCreatedAt or r.id < :afterId) "
+            + "and (:status is null or r.status = :status) "
+            + "and (:equipmentId is null or r.gear.id = :equipmentId) "
+            + "and (:from is null or r.endDate >= :from) "
+            + "and (:to is null or r.startDate <= :to) "
+            + "order by r.createdAt desc, r.id desc")
+    List<BorrowRequest> findPageByRequester(@Param("requesterId") Long requesterId,
+                                            @Param("status") BorrowStatus status,
+                                            @Param("equipmentId") Long equipmentId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to,
+                                            @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    /**
+     * Page of the requests in one status; seeks on {@code ix_borrow_status_created}.
+     *
+     * @see #findPage
+     */
+    @EntityGraph(attributePaths = {"requester", "gear"})
+    @Query("select r from BorrowRequest r "
+            + "where r.status = :status "
+            + "and r.createdAt <= :afterCreatedAt and (r.createdAt < :afterCreatedAt or r.id < :afterId) "
+            + "and (:equipmentId is null or r.gear.id = :equipmentId) "
+            + "and (:from is null or r.endDate >= :from) "
+            + "and (:to is null or r.startDate <= :to) "
+            + "order by r.createdAt desc, r.id desc")
+    List<BorrowRequest> findPageByStatus(@Param("status") BorrowStatus status,
+                                         @Param("equipmentId") Long equipmentId,
+                                         @Param("from") LocalDate from,
+                                         @Param("to") LocalDate to,
+                                         @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    /**
+     * Page of one item's requests; seeks on {@code ix_borrow_equipment_created}.
+     *
+     * @see #findPage
+     */
+    @EntityGraph(attributePaths = {"requester", "gear"})
+    @Query("select r from BorrowRequest r "
+            + "where r.gear.id = :equipmentId "
+            + "and r.createdAt <= :afterCreatedAt and (r.createdAt < :afterCreatedAt or r.id < :afterId) "
+            + "and (:from is null or r.endDate >= :from) "
+            + "and (:to is null or r.startDate <= :to) "
+            + "order by r.createdAt desc, r.id desc")
+    List<BorrowRequest> findPageByEquipment(@Param("equipmentId") Long equipmentId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to,
+                                            @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    /**
+     * Page of all requests; seeks on {@code ix_borrow_created}.
+     *
+     * @see #findPage
+     */
+    @EntityGraph(attributePaths = {"requester", "gear"})
+    @Query("select r from BorrowRequest r "
+            + "where r.createdAt <= :afterCreatedAt and (r.createdAt < :afterCreatedAt or r.id < :afterId) "
+            + "and (:from is null or r.endDate >= :from) "
+            + "and (:to is null or r.startDate <= :to) "
+            + "order by r.createdAt desc, r.id desc")
+    List<BorrowRequest> findPageUnfiltered(@Param("from") LocalDate from,
+                                           @Param("to") LocalDate to,
+                                           @Param("afterCreatedAt") OffsetDateTime afterCreatedAt,
+                                           @Param("afterId") Long afterId,
+                                           Pageable pageable);
 }
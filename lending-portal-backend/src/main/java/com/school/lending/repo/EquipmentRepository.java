@@ -1,9 +1,16 @@
 package com.school.lending.repo;
 
 import com.school.lending.model.Equipment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for {@link com.school.lending.model.Equipment} entities.
@@ -11,12 +18,13 @@ import java.util.List;
 public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
 
     /**
-     * Find equipment items by category (case-insensitive).
+     * Find equipment items by normalised category key (see
+     * {@link Equipment#keyFor}); served by the category_key index.
      *
-     * @param category category name
+     * @param categoryKey lower-cased category name
      * @return list of Equipment matching the category
      */
-    List<Equipment> findByCategoryIgnoreCase(String category);
+    List<Equipment> findByCategoryKey(String categoryKey);
 
     /**
      * Find equipment items with available quantity greater than the given
@@ -26,4 +34,75 @@ public interface EquipmentRepository extends JpaRepository<Equipment, Long> {
      * @return list of Equipment with availableQuantity &gt; qty
      */
     List<Equipment> findByAvailableQuantityGreaterThan(int qty);
+
+    /**
+     * Keyset page of equipment ordered by id.
+     *
+     * @param categoryKey   optional lower-cased category; null for all
+     * @param availableOnly when true, only items with stock available
+     * @param afterId       id of the last item of the previous page, or null
+     * @param pageable      page 0 with the page size
+     * @return up to {@code pageable.getPageSize()} items
+     */
+    @Query("select e from Equipment e "
+            + "where (:categoryKey is null or e.categoryKey = :categoryKey) "
+            + "and (:availableOnly = false or e.availableQuantity > 0) "
+            + "and (:afterId is null or e.id > :afterId) "
+            + "order by e.id")
+    List<Equipment> findPage(@Param("categoryKey") String categoryKey,
+                             @Param("availableOnly") boolean availableOnly,
+                             @Param("afterId") Long afterId,
+                             Pageable pageable);
+
+    /**
+     * Load an equipment row and lock it ({@code SELECT ... FOR UPDATE}) until
+     * the surrounding transaction ends.
+     *
+     * @param id equipment id
+     * @return optional Equipment
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from Equipment e where e.id = :id")
+    Optional<Equipment> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Read an item's available quantity straight from the database.
+     *
+     * @param id equipment id
+     * @return the quantity, or empty if the item is missing
+     */
+    @Query("select e.availableQuantity from Equipment e where e.id = :id")
+    Optional<Integer> findAvailableQuantity(@Param("id") Long id);
+
+    /**
+     * Take stock out in one statement, clamping at zero in the database.
+     * Bumps the version so stale edits of the row are detected.
+     *
+     * @param id     equipment id
+     * @param amount number of items handed out
+     * @return 1 if the row was updated, 0 if it is missing or had no stock left
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Equipment e set "
+            + "e.availableQuantity = case when e.availableQuantity > :amount "
+            + "then e.availableQuantity - :amount else 0 end, "
+            + "e.version = e.version + 1 "
+            + "where e.id = :id and e.availableQuantity > 0")
+    int decrementAvailable(@Param("id") Long id, @Param("amount") int amount);
+
+    /**
+     * Put stock back in one statement, capped at {@code totalQuantity} in the
+     * database. Bumps the version so stale edits of the row are detected.
+     *
+     * @param id     equipment id
+     * @param amount number of items returned
+     * @return 1 if the row was updated, 0 if it is missing or already full
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Equipment e set "
+            + "e.availableQuantity = case when e.availableQuantity + :amount < e.totalQuantity "
+            + "then e.availableQuantity + :amount else e.totalQuantity end, "
+            + "e.version = e.version + 1 "
+            + "where e.id = :id and e.availableQuantity < e.totalQuantity")
+    int incrementAvailable(@Param("id") Long id, @Param("amount") int amount);
 }
@@ -0,0 +1,61 @@
+package com.school.lending.repo;
+
+import com.school.lending.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Repository for {@link RefreshToken} entities.
+ */
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    /**
+     * Find a refresh token by the hash of its raw value.
+     *
+     * @param tokenHash hex SHA-256 of the raw token
+     * @return optional RefreshToken
+     */
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Mark a token used, but only if nobody has used it yet. Two concurrent
+     * exchanges of the same token cannot both succeed.
+     *
+     * @return 1 if this call consumed the token, 0 if it was already used
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.usedAt = :now where t.id = :id and t.usedAt is null")
+    int markUsed(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Revoke every token in a family.
+     *
+     * @return number of tokens revoked
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.familyId = :familyId")
+    int revokeFamily(@Param("familyId") String familyId);
+
+    /**
+     * Revoke every refresh token held by a user.
+     *
+     * @return number of tokens revoked
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revoked = true where t.userId = :userId and t.revoked = false")
+    int revokeAllForUser(@Param("userId") Long userId);
+
+    /**
+     * Delete tokens that expired before the given instant.
+     *
+     * @return number of tokens deleted
+     */
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,24 @@
+package com.school.lending.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller parameter of type {@link com.school.lending.model.UserAccount}
+ * that should receive the account authenticated by {@link JwtAuthFilter}.
+ *
+ * <p>The account is resolved once per request by the filter; handlers do not
+ * look it up again. When no valid token was presented the request fails with
+ * 401 unless {@link #required()} is false, in which case {@code null} is
+ * passed.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+
+    boolean required() default true;
+}
@@ -1,7 +1,9 @@
 package com.school.lending.security;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.school.lending.model.UserAccount;
 import com.school.lending.repo.UserAccountRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,16 +17,44 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
 
+/**
+ * Authenticates API calls from the {@code Authorization: Bearer} or
+ * {@code X-Auth-Token} header.
+ *
+ * <p>The user account is loaded once here and stored as a request attribute
+ * so controllers receive it through {@link CurrentUser} instead of looking it
+ * up again.
+ *
+ * <p>With {@code app.auth.claims-trust=true} the account is built from the
+ * token's {@code id}/{@code role}/{@code name} claims instead, so the user
+ * table is not read at all. In both modes tokens whose generation has been
+ * superseded in {@link TokenGenerations}, or whose id is on the
+ * {@link RevocationList}, are rejected.
+ */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    /** Request attribute holding the authenticated {@link UserAccount}. */
+    public static final String CURRENT_USER_ATTRIBUTE = JwtAuthFilter.class.getName() + ".user";
+
     private final JwtUtil jwtUtil;
     private final UserAccountRepository userRepository;
+    private final TokenGenerations tokenGenerations;
+    private final RevocationList revocationList;
+    private final boolean claimsTrust;
 
-    public JwtAuthFilter(JwtUtil jwtUtil, UserAccountRepository userRepository) {
+    public JwtAuthFilter(JwtUtil jwtUtil,
+                         UserAccountRepository userRepository,
+                         TokenGenerations tokenGenerations,
+                         RevocationList revocationList,
+                         @Value("${app.auth.claims-trust:false}") boolean claimsTrust) {
         this.jwtUtil = jwtUtil;
         this.userRepository = userRepository;
+        this.tokenGenerations = tokenGenerations;
+        this.revocationList = revocationList;
+        this.claimsTrust = claimsTrust;
     }
 
     @Override
@@ -32,20 +62,40 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         String token = resolveToken(request);
-        if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-            String username = jwtUtil.getUsername(token);
-            UserAccount user = userRepository.findByUsername(username).orElse(null);
+        Optional<DecodedJWT> jwt = StringUtils.hasText(token) ? jwtUtil.verify(token) : Optional.empty();
+        if (jwt.isPresent()) {
+            UserAccount user = resolveUser(jwt.get()).orElse(null);
             if (user != null) {
                 SimpleGrantedAuthority auth = new SimpleGrantedAuthority("ROLE_" + user.getRole().name());
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(user.getUsername(), null, Collections.singletonList(auth));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                request.setAttribute(CURRENT_USER_ATTRIBUTE, user);
             }
         }
         filterChain.doFilter(request, response);
     }
 
-    private String resolveToken(HttpServletRequest request) {
+    private Optional<UserAccount> resolveUser(DecodedJWT jwt) {
+        Long userId = jwt.getClaim("id").asLong();
+        if (!tokenGenerations.isCurrent(userId, JwtUtil.generationOf(jwt))
+                || revocationList.isRevoked(jwt.getId())) {
+            return Optional.empty();
+        }
+        if (claimsTrust) {
+            return JwtUtil.accountFromClaims(jwt);
+        }
+        return userRepository.findByUsername(jwt.getSubject());
+    }
+
+    /**
+     * Read the access token of a request: {@code Authorization: Bearer}
+     * first, then {@code X-Auth-Token}.
+     *
+     * @param request incoming request
+     * @return the raw token, or null when neither header carries one
+     */
+    public static String resolveToken(HttpServletRequest request) {
         String bearer = request.getHeader("Authorization");
         if (StringUtils.hasText(bearer) && bearer.startsWith("Bearer ")) {
             return bearer.substring(7);
@@ -6,53 +6,256 @@ import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
 import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Issues and verifies the signed JWTs used for API authentication.
+ *
+ * <p>Successfully verified tokens are kept in a bounded cache until they
+ * expire, so a token's signature is checked once per node rather than on
+ * every call to {@link #validateToken}, {@link #getUsername} or
+ * {@link #getUserId}. Tokens that fail verification are never cached. When
+ * the cache is full, the entries closest to expiry make room, found through
+ * an index ordered by expiry; expired entries are swept by
+ * {@link #purgeExpired}.
+ *
+ * <p>Besides the subject (username) each token carries the user's {@code id},
+ * {@code role}, {@code name}, token generation ({@code gen}) and a unique
+ * token id ({@code jti}) used for revocation, enough for
+ * {@link JwtAuthFilter} to build the principal without reading the user table
+ * when claims-trust mode is on. In that mode tokens are capped at
+ * {@code app.auth.claims-trust.expiration-ms} so role changes and
+ * revocations take effect quickly.
+ */
 @Component
 public class JwtUtil {
 
     private final Algorithm algorithm;
     private final JWTVerifier verifier;
     private final long expirationMs;
+    private final int cacheSize;
+    private final Map<String, DecodedJWT> verified = new ConcurrentHashMap<>();
+    private final NavigableSet<Expiry> expiries = new ConcurrentSkipListSet<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
 
+    public JwtUtil(String secret, long expirationMs) {
+        this(secret, expirationMs, 10_000);
+    }
+
+    public JwtUtil(String secret, long expirationMs, int cacheSize) {
+        this(secret, expirationMs, cacheSize, false, expirationMs);
+    }
+
+    @Autowired
     public JwtUtil(@Value("${app.jwt.secret:dev-secret-change-me}") String secret,
-                   @Value("${app.jwt.expiration-ms:3600000}") long expirationMs) {
+                   @Value("${app.jwt.expiration-ms:3600000}") long expirationMs,
+                   @Value("${app.jwt.cache-size:10000}") int cacheSize,
+                   @Value("${app.auth.claims-trust:false}") boolean claimsTrust,
+                   @Value("${app.auth.claims-trust.expiration-ms:900000}") long claimsTrustExpirationMs) {
         this.algorithm = Algorithm.HMAC256(secret.getBytes());
         this.verifier = JWT.require(algorithm).build();
-        this.expirationMs = expirationMs;
+        this.expirationMs = claimsTrust ? Math.min(expirationMs, claimsTrustExpirationMs) : expirationMs;
+        this.cacheSize = cacheSize;
     }
 
     public String generateToken(UserAccount acct) {
+        return generateToken(acct, 0);
+    }
+
+    /**
+     * Issue a signed token for the account.
+     *
+     * @param acct       account the token represents
+     * @param generation the user's current token generation
+     * @return signed JWT
+     */
+    public String generateToken(UserAccount acct, int generation) {
         Date now = new Date();
         Date exp = new Date(now.getTime() + expirationMs);
         return JWT.create()
                 .withSubject(acct.getUsername())
                 .withClaim("id", acct.getId())
                 .withClaim("role", acct.getRole().name())
+                .withClaim("name", acct.getDisplayName())
+                .withClaim("gen", generation)
+                .withJWTId(UUID.randomUUID().toString())
                 .withIssuedAt(now)
                 .withExpiresAt(exp)
                 .sign(algorithm);
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Token generation carried by a decoded token; tokens issued before
+     * generations existed count as generation 0.
+     */
+    public static int generationOf(DecodedJWT jwt) {
+        Integer gen = jwt.getClaim("gen").asInt();
+        return gen == null ? 0 : gen;
+    }
+
+    /**
+     * Build a detached account from a verified token's claims, without
+     * touching the user table.
+     *
+     * @param jwt verified token
+     * @return account with id, username, role and display name, or empty when
+     * the token lacks the required claims
+     */
+    public static Optional<UserAccount> accountFromClaims(DecodedJWT jwt) {
+        Long id = jwt.getClaim("id").asLong();
+        String role = jwt.getClaim("role").asString();
+        if (id == null || role == null || jwt.getSubject() == null) {
+            return Optional.empty();
+        }
+        UserRole parsed;
         try {
-            verifier.verify(token);
-            return true;
+            parsed = UserRole.valueOf(role);
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
+        }
+        String name = jwt.getClaim("name").asString();
+        UserAccount acct = new UserAccount(jwt.getSubject(), null, parsed, name == null ? jwt.getSubject() : name);
+        acct.setId(id);
+        return Optional.of(acct);
+    }
+
+    /**
+     * Verify a token's signature and expiry, consulting the cache first.
+     *
+     * @param token raw JWT
+     * @return the decoded token, or empty when it is invalid or expired
+     */
+    public Optional<DecodedJWT> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        DecodedJWT cached = verified.get(token);
+        if (cached != null) {
+            if (!isExpired(cached, now)) {
+                cacheHits.incrementAndGet();
+                return Optional.of(cached);
+            }
+            forget(token, cached);
+        }
+        cacheMisses.incrementAndGet();
+        DecodedJWT jwt;
+        try {
+            jwt = verifier.verify(token);
         } catch (JWTVerificationException ex) {
-            return false;
+            return Optional.empty();
         }
+        remember(token, jwt);
+        return Optional.of(jwt);
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token).isPresent();
     }
 
     public String getUsername(String token) {
-        DecodedJWT jwt = verifier.verify(token);
-        return jwt.getSubject();
+        return verifiedOrThrow(token).getSubject();
     }
 
     public Long getUserId(String token) {
-        DecodedJWT jwt = verifier.verify(token);
-        return jwt.getClaim("id").asLong();
+        return verifiedOrThrow(token).getClaim("id").asLong();
+    }
+
+    /**
+     * Drop cached tokens whose expiry has passed.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.cache-purge-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Expiry first;
+        while ((first = firstExpiry()) != null && first.at <= now) {
+            if (expiries.remove(first)) {
+                verified.remove(first.token);
+            }
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public int getCacheSize() {
+        return verified.size();
+    }
+
+    private DecodedJWT verifiedOrThrow(String token) {
+        return verify(token).orElseThrow(() -> new JWTVerificationException("invalid token"));
+    }
+
+    private void remember(String token, DecodedJWT jwt) {
+        if (cacheSize <= 0) {
+            return;
+        }
+        // one entry per miss in the steady state, never a scan of the cache
+        while (verified.size() >= cacheSize) {
+            Expiry first = expiries.pollFirst();
+            if (first == null) {
+                break;
+            }
+            verified.remove(first.token);
+        }
+        if (verified.put(token, jwt) == null) {
+            expiries.add(new Expiry(expiresAt(jwt), token));
+        }
+    }
+
+    private void forget(String token, DecodedJWT jwt) {
+        if (verified.remove(token, jwt)) {
+            expiries.remove(new Expiry(expiresAt(jwt), token));
+        }
+    }
+
+    private Expiry firstExpiry() {
+        try {
+            return expiries.first();
+        } catch (NoSuchElementException ex) {
+            return null;
+        }
+    }
+
+    private static long expiresAt(DecodedJWT jwt) {
+        Date exp = jwt.getExpiresAt();
+        return exp == null ? Long.MAX_VALUE : exp.getTime();
+    }
+
+    private static boolean isExpired(DecodedJWT jwt, long now) {
+        Date exp = jwt.getExpiresAt();
+        return exp != null && exp.getTime() <= now;
+    }
+
+    /**
+     * Position of a cached token in expiry order.
+     */
+    private record Expiry(long at, String token) implements Comparable<Expiry> {
+
+        @Override
+        public int compareTo(Expiry other) {
+            int byTime = Long.compare(at, other.at);
+            return byTime != 0 ? byTime : token.compareTo(other.token);
+        }
     }
 }
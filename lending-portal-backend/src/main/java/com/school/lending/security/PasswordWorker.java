@@ -0,0 +1,166 @@
+package com.school.lending.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs password hashing on a small dedicated pool.
+ *
+ * <p>BCrypt is deliberately slow, so a burst of logins would otherwise tie
+ * up request threads that catalog and booking calls need. Hashing here is
+ * limited to {@code app.auth.hash-threads} threads with a queue of
+ * {@code app.auth.hash-queue} waiting jobs; when the queue is full, or a job
+ * waits longer than {@code app.auth.hash-timeout-ms}, the caller gets a 503
+ * with a {@code Retry-After} header straight away instead of piling up.
+ */
+@Component
+public class PasswordWorker {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong hashes = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+
+    public PasswordWorker(PasswordEncoder passwordEncoder,
+                          @Value("${app.auth.hash-threads:4}") int threads,
+                          @Value("${app.auth.hash-queue:64}") int queueCapacity,
+                          @Value("${app.auth.hash-timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Check a raw password against a stored hash on the hashing pool.
+     *
+     * @throws ResponseStatusException with 503 when the pool is saturated
+     */
+    public boolean matches(CharSequence raw, String encoded) {
+        return run(() -> passwordEncoder.matches(raw, encoded));
+    }
+
+    /**
+     * Hash a raw password on the hashing pool.
+     *
+     * @throws ResponseStatusException with 503 when the pool is saturated
+     */
+    public String encode(CharSequence raw) {
+        return run(() -> passwordEncoder.encode(raw));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getHashCount() {
+        return hashes.get();
+    }
+
+    public double getAverageHashMillis() {
+        long count = hashes.get();
+        return count == 0 ? 0.0 : hashNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxHashMillis() {
+        return maxHashNanos.get() / 1_000_000.0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> job) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(job));
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+            throw new HashingBusyException();
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            rejected.incrementAndGet();
+            throw new HashingBusyException();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HashingBusyException();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private <T> T timed(Callable<T> job) throws Exception {
+        long started = System.nanoTime();
+        try {
+            return job.call();
+        } finally {
+            long took = System.nanoTime() - started;
+            hashes.incrementAndGet();
+            hashNanos.addAndGet(took);
+            maxHashNanos.accumulateAndGet(took, Math::max);
+        }
+    }
+
+    private static ThreadFactory namedThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 503 raised when hashing capacity is exhausted; tells clients when to retry.
+     */
+    static class HashingBusyException extends ResponseStatusException {
+
+        HashingBusyException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "login is busy, try again shortly");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "1");
+            return headers;
+        }
+    }
+}
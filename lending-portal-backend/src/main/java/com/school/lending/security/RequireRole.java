@@ -0,0 +1,25 @@
+package com.school.lending.security;
+
+import com.school.lending.model.UserRole;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Restricts a controller method (or every method of a controller) to users
+ * holding one of the listed roles. Checked by {@link RoleCheckInterceptor}
+ * before the handler runs; callers without a valid token get 401, callers
+ * with another role get 403 carrying {@link #message()}.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequireRole {
+
+    UserRole[] value();
+
+    String message() default "not allowed";
+}
@@ -0,0 +1,134 @@
+package com.school.lending.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token ids ({@code jti}) revoked before their natural expiry, e.g. on logout.
+ *
+ * <p>Every authenticated request asks {@link #isRevoked}, so the common "not
+ * revoked" answer comes from a bloom filter without touching the exact set;
+ * only filter hits (real revocations and rare false positives) consult the
+ * map. Entries are dropped once the token has expired anyway, and the filter
+ * is rebuilt from what is left, so the structure stays small. The list lives
+ * in memory on each node, like {@link TokenGenerations}.
+ */
+@Component
+public class RevocationList {
+
+    private static final int HASHES = 4;
+
+    private final int bloomBits;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile Bloom bloom;
+
+    public RevocationList() {
+        this(1 << 20);
+    }
+
+    @Autowired
+    public RevocationList(@Value("${app.auth.revocation.bloom-bits:1048576}") int bloomBits) {
+        this.bloomBits = bloomBits;
+        this.bloom = new Bloom(bloomBits);
+    }
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param jti       token id
+     * @param expiresAt token expiry; after this the entry is pruned
+     */
+    public synchronized void revoke(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        revoked.put(jti, expiresAt);
+        bloom.add(jti);
+    }
+
+    /**
+     * Check whether a token id has been revoked. Lock-free.
+     *
+     * @param jti token id, may be null for tokens issued without one
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(String jti) {
+        return jti != null && bloom.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /**
+     * Drop entries for tokens that have expired and rebuild the filter so it
+     * no longer answers "maybe" for them.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation.purge-ms:60000}")
+    public synchronized void purgeExpired() {
+        Instant now = Instant.now();
+        if (!revoked.values().removeIf(exp -> !exp.isAfter(now))) {
+            return;
+        }
+        Bloom fresh = new Bloom(bloomBits);
+        revoked.keySet().forEach(fresh::add);
+        bloom = fresh;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Fixed-size bloom filter over strings using double hashing.
+     */
+    private static final class Bloom {
+
+        private final AtomicLongArray words;
+        private final int bits;
+
+        Bloom(int bits) {
+            this.bits = Math.max(64, bits);
+            this.words = new AtomicLongArray((this.bits + 63) / 64);
+        }
+
+        void add(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mask = 1L << (bit & 63);
+                words.getAndUpdate(bit >>> 6, word -> word | mask);
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash64(String key) {
+            // FNV-1a followed by the SplitMix64 finaliser
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+            h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+            return h ^ (h >>> 31);
+        }
+    }
+}
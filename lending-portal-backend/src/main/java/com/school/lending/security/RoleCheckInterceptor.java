@@ -0,0 +1,40 @@
+package com.school.lending.security;
+
+import com.school.lending.model.UserAccount;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Arrays;
+
+/**
+ * Enforces {@link RequireRole} on controller methods and classes using the
+ * account resolved by {@link JwtAuthFilter}.
+ */
+public class RoleCheckInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RequireRole rule = method.getMethodAnnotation(RequireRole.class);
+        if (rule == null) {
+            rule = method.getBeanType().getAnnotation(RequireRole.class);
+        }
+        if (rule == null) {
+            return true;
+        }
+        Object current = request.getAttribute(JwtAuthFilter.CURRENT_USER_ATTRIBUTE);
+        if (!(current instanceof UserAccount user)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "log in first");
+        }
+        if (!Arrays.asList(rule.value()).contains(user.getRole())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, rule.message());
+        }
+        return true;
+    }
+}
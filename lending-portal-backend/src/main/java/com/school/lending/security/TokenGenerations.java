@@ -0,0 +1,52 @@
+package com.school.lending.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user token generation counters held in memory.
+ *
+ * <p>Every JWT carries the generation that was current when it was issued.
+ * Bumping a user's generation invalidates all tokens issued before, which
+ * lets the API revoke sessions without a database lookup per request.
+ * Counters start at 0 and are not persisted, so a restart forgets earlier
+ * bumps; keep token lifetimes short when relying on this.
+ */
+@Component
+public class TokenGenerations {
+
+    private final Map<Long, Integer> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Current generation for a user.
+     *
+     * @param userId user id
+     * @return generation new tokens should carry
+     */
+    public int current(Long userId) {
+        return userId == null ? 0 : generations.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Invalidate every token issued to the user so far.
+     *
+     * @param userId user id
+     * @return the new generation
+     */
+    public int bump(Long userId) {
+        return generations.merge(userId, 1, Integer::sum);
+    }
+
+    /**
+     * Check that a token's generation is still accepted for the user.
+     *
+     * @param userId     user id from the token
+     * @param generation generation claim from the token
+     * @return true if the token has not been revoked by a bump
+     */
+    public boolean isCurrent(Long userId, int generation) {
+        return generation >= current(userId);
+    }
+}
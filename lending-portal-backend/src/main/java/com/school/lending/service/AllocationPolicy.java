@@ -0,0 +1,60 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowRequest;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Order in which pending requests for one item are offered the remaining
+ * stock by the {@link PendingAllocator}. Each request is granted if it still
+ * fits once the ones before it have been placed.
+ *
+ * <p>Chosen with {@code app.allocation.policy}: {@code first-come},
+ * {@code shortest-first} or {@code max-fulfilled}.
+ */
+public enum AllocationPolicy {
+
+    /** Oldest request first. */
+    FIRST_COME(Comparator.comparing(BorrowRequest::getCreatedAt)),
+
+    /** Shortest booking first, oldest first among equal lengths. */
+    SHORTEST_FIRST(Comparator.comparingLong(AllocationPolicy::days)
+            .thenComparing(BorrowRequest::getCreatedAt)),
+
+    /**
+     * Smallest footprint (units times days) first. Placing small bookings
+     * before large ones is the usual greedy approximation for granting as
+     * many requests as possible; it is not guaranteed optimal.
+     */
+    MAX_FULFILLED(Comparator.comparingLong((BorrowRequest r) -> days(r) * r.getQty())
+            .thenComparing(BorrowRequest::getCreatedAt));
+
+    private final Comparator<BorrowRequest> order;
+
+    AllocationPolicy(Comparator<BorrowRequest> order) {
+        this.order = order.thenComparing(BorrowRequest::getId);
+    }
+
+    /**
+     * @return comparator placing the request to serve first at the front
+     */
+    public Comparator<BorrowRequest> order() {
+        return order;
+    }
+
+    /**
+     * Parse the property form ({@code first-come}, ...).
+     *
+     * @param value property value, case-insensitive
+     * @return the matching policy
+     * @throws IllegalArgumentException when the value names no policy
+     */
+    public static AllocationPolicy fromProperty(String value) {
+        return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+
+    private static long days(BorrowRequest r) {
+        return r.getEndDate().toEpochDay() - r.getStartDate().toEpochDay() + 1;
+    }
+}
@@ -5,13 +5,12 @@ import com.school.lending.model.UserRole;
 import com.school.lending.repo.UserAccountRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import com.school.lending.security.JwtUtil;
+import com.school.lending.security.PasswordWorker;
+import com.school.lending.security.RevocationList;
+import com.school.lending.security.TokenGenerations;
 
 @Service
 public class AuthService {
@@ -20,25 +19,31 @@ public class AuthService {
      * Lightweight authentication service used by controllers.
      *
      * <p>This service provides username/password checks, student user
-     * creation and an in-memory token issuance mechanism used for demo/test
-     * purposes. Tokens are stored in-process and are not persisted.
+     * creation, signed token issuance and revocation (logout and "revoke all
+     * sessions"). Revocation state for access tokens is kept in memory.
      */
 
     private final UserAccountRepository userRepository;
-    private final Map<String, Long> tokenBank = new ConcurrentHashMap<>();
-    private final Map<Long, String> reverseLookup = new ConcurrentHashMap<>();
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordWorker passwordWorker;
     private final JwtUtil jwtUtil;
+    private final TokenGenerations tokenGenerations;
+    private final RevocationList revocationList;
+    private final RefreshTokenService refreshTokenService;
 
-    public AuthService(UserAccountRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserAccountRepository userRepository, PasswordWorker passwordWorker, JwtUtil jwtUtil,
+                       TokenGenerations tokenGenerations, RevocationList revocationList,
+                       RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordWorker = passwordWorker;
         this.jwtUtil = jwtUtil;
+        this.tokenGenerations = tokenGenerations;
+        this.revocationList = revocationList;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
-     * Authenticate a user by username and password. This method performs a
-     * simple equality check against the stored password.
+     * Authenticate a user by username and password. The BCrypt check runs
+     * on the {@link PasswordWorker} pool, which answers 503 when saturated.
      *
      * @param username username to authenticate
      * @param password plaintext password to verify
@@ -49,7 +54,7 @@ public class AuthService {
             return Optional.empty();
         }
     return userRepository.findByUsername(username)
-        .filter(u -> passwordEncoder.matches(password, u.getPassword()));
+        .filter(u -> passwordWorker.matches(password, u.getPassword()));
     }
 
     /**
@@ -65,14 +70,14 @@ public class AuthService {
             return Optional.empty();
         }
     // store passwords securely using BCrypt
-    String encoded = passwordEncoder.encode(password == null ? "" : password);
+    String encoded = passwordWorker.encode(password == null ? "" : password);
     UserAccount fresh = new UserAccount(username, encoded, UserRole.STUDENT,
         StringUtils.hasText(nameTag) ? nameTag : username);
         return Optional.of(userRepository.save(fresh));
     }
 
     /**
-     * Issue (or return existing) an in-memory token for the supplied account.
+     * Issue a signed access token for the supplied account.
      *
      * @param acct the user account to issue a token for
      * @return a token string, or null when acct is invalid
@@ -82,24 +87,33 @@ public class AuthService {
             return null;
         }
         // generate signed JWT
-        return jwtUtil.generateToken(acct);
+        return jwtUtil.generateToken(acct, tokenGenerations.current(acct.getId()));
     }
 
     /**
-     * Resolve a user account from an issued token.
+     * End every session of a user: access tokens issued so far stop working
+     * (checked in memory, no database access per request) and all of the
+     * user's refresh tokens are revoked.
      *
-     * @param token token previously issued by {@link #issueToken(UserAccount)}
-     * @return Optional containing the UserAccount if token is valid
+     * @param userId id of the user whose tokens are revoked
      */
-    public Optional<UserAccount> findUserByToken(String token) {
-        if (!StringUtils.hasText(token)) {
-            return Optional.empty();
-        }
-        // Validate and parse JWT token
-        if (!jwtUtil.validateToken(token)) {
-            return Optional.empty();
+    public void revokeTokens(Long userId) {
+        tokenGenerations.bump(userId);
+        refreshTokenService.revokeAll(userId);
+    }
+
+    /**
+     * End a single session: revoke the presented access token until it
+     * expires and the refresh token family it belongs to.
+     *
+     * @param token        access token, may be null or already expired
+     * @param refreshToken refresh token, may be null
+     */
+    public void logout(String token, String refreshToken) {
+        if (StringUtils.hasText(token)) {
+            jwtUtil.verify(token).ifPresent(jwt ->
+                    revocationList.revoke(jwt.getId(), jwt.getExpiresAt() == null ? null : jwt.getExpiresAt().toInstant()));
         }
-        String username = jwtUtil.getUsername(token);
-        return userRepository.findByUsername(username);
+        refreshTokenService.revoke(refreshToken);
     }
 }
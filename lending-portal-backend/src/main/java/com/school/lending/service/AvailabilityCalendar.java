@@ -0,0 +1,280 @@
+package com.school.lending.service;
+
+import com.school.lending.dto.DailyAvailability;
+import com.school.lending.dto.Slot;
+import com.school.lending.dto.WindowAvailability;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.Reservation;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-day free quantity of an item over a date range.
+ *
+ * <p>A calendar costs one range query for the item's active reservations
+ * and one {@link UsageSweep#dailyUsage sweep} over their start/end deltas,
+ * whatever the length of the range. Results are cached by item and range;
+ * a booking change or an edit of the item drops that item's entries.
+ *
+ * <p>{@link #forWindow} answers the catalog question "how many are free for
+ * these dates" for a whole page of items with a single query, and
+ * {@link #nextSlots} finds the earliest date ranges a booking would fit in.
+ */
+@Service
+public class AvailabilityCalendar {
+
+    /** Longest range a single calendar may cover. */
+    public static final int MAX_DAYS = 366;
+
+    /** Most slots a single search returns. */
+    public static final int MAX_SLOTS = 10;
+
+    private record Key(Long equipmentId, LocalDate from, LocalDate to) {
+    }
+
+    private final BorrowRequestRepository borrowRepo;
+    private final EquipmentService equipmentService;
+    private final ConflictPolicy conflictPolicy;
+    private final int maxEntries;
+    private final int searchHorizonDays;
+    // the sliding maximum in nextSlots already is the peak policy's answer
+    private final boolean confirmWithPolicy;
+    private final Map<Key, DailyAvailability> cache = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public AvailabilityCalendar(BorrowRequestRepository borrowRepo, EquipmentService equipmentService,
+                                ConflictPolicy conflictPolicy,
+                                @Value("${app.availability.calendar-cache-size:2000}") int maxEntries,
+                                @Value("${app.availability.slot-search-days:180}") int searchHorizonDays) {
+        this.borrowRepo = borrowRepo;
+        this.equipmentService = equipmentService;
+        this.conflictPolicy = conflictPolicy;
+        this.maxEntries = maxEntries;
+        this.searchHorizonDays = searchHorizonDays;
+        this.confirmWithPolicy = !(conflictPolicy instanceof PeakUsageConflictPolicy);
+    }
+
+    /**
+     * Free quantity of an item on each day of {@code [from, to]}.
+     *
+     * @param equipmentId equipment id
+     * @param from        first day (inclusive)
+     * @param to          last day (inclusive)
+     * @return the calendar, or empty when the item does not exist
+     * @throws IllegalArgumentException when the range is reversed or longer
+     *                                  than {@link #MAX_DAYS}
+     */
+    public Optional<DailyAvailability> forItem(Long equipmentId, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("from must be on or before to");
+        }
+        if (to.toEpochDay() - from.toEpochDay() + 1 > MAX_DAYS) {
+            throw new IllegalArgumentException("range longer than " + MAX_DAYS + " days");
+        }
+        Key key = new Key(equipmentId, from, to);
+        DailyAvailability cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long stamp = invalidations.get();
+        Optional<Equipment> item = equipmentService.findOne(equipmentId);
+        if (item.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Reservation> reservations = borrowRepo.findItemReservations(
+                equipmentId, AvailabilityIndex.ACTIVE_STATUSES, from, to);
+        int total = item.get().getTotalQuantity();
+        int[] used = UsageSweep.dailyUsage(reservations, from, to);
+        List<DailyAvailability.Day> days = new ArrayList<>(used.length);
+        for (int d = 0; d < used.length; d++) {
+            days.add(new DailyAvailability.Day(from.plusDays(d), Math.max(0, total - used[d])));
+        }
+        DailyAvailability calendar = new DailyAvailability(equipmentId, from, to, total, List.copyOf(days));
+        remember(key, calendar, stamp);
+        return Optional.of(calendar);
+    }
+
+    /**
+     * Free quantity of each item for a booking covering all of
+     * {@code [from, to]}, as the approval check would count it.
+     *
+     * <p>The active reservations of every item are loaded with one range
+     * query and grouped in memory; a plain SUM per item would overstate the
+     * usage of items whose bookings follow each other inside the window.
+     *
+     * @param items items to report on, in the order to return them
+     * @param from  first day (inclusive)
+     * @param to    last day (inclusive)
+     * @return one entry per item
+     * @throws IllegalArgumentException when the range is reversed
+     */
+    public List<WindowAvailability> forWindow(List<Equipment> items, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("from must be on or before to");
+        }
+        if (items.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = items.stream().map(Equipment::getId).toList();
+        Map<Long, List<Reservation>> byItem = borrowRepo
+                .findItemsReservations(ids, AvailabilityIndex.ACTIVE_STATUSES, from, to)
+                .stream()
+                .collect(Collectors.groupingBy(Reservation::equipmentId));
+        List<WindowAvailability> result = new ArrayList<>(items.size());
+        for (Equipment item : items) {
+            List<Reservation> overlapping = byItem.getOrDefault(item.getId(), List.of());
+            int reserved = overlapping.isEmpty() ? 0 : conflictPolicy.reservedDuring(overlapping, from, to);
+            result.add(new WindowAvailability(item, Math.max(0, item.getTotalQuantity() - reserved)));
+        }
+        return result;
+    }
+
+    /**
+     * Earliest date ranges of {@code days} days, starting on or after
+     * {@code from}, in which {@code qty} more units of the item fit.
+     *
+     * <p>Daily usage over the search horizon comes from one range query and a
+     * sweep; a sliding-window maximum over those days then yields the peak
+     * usage of every candidate range in a single pass, so the search is
+     * linear in the horizon. Under the peak-usage policy that maximum is the
+     * approval check itself. Any other {@link ConflictPolicy} confirms each
+     * candidate so a suggestion is never refused on approval grounds the
+     * policy would count differently; the overlap sum it needs comes from
+     * prefix counts in O(1) per candidate: quantity booked to start by the
+     * window's end minus quantity booked to end before its start.
+     *
+     * @param equipmentId equipment id
+     * @param qty         units wanted
+     * @param days        length of the booking in days
+     * @param from        earliest first day
+     * @param count       number of ranges wanted, at most {@link #MAX_SLOTS}
+     * @return start-ordered ranges (possibly fewer than requested, or none),
+     *         or empty when the item does not exist
+     * @throws IllegalArgumentException when qty, days or count is out of range
+     */
+    public Optional<List<Slot>> nextSlots(Long equipmentId, int qty, int days, LocalDate from, int count) {
+        if (qty <= 0 || days <= 0 || days > MAX_DAYS || count <= 0 || count > MAX_SLOTS || from == null) {
+            throw new IllegalArgumentException("qty, days and count must be positive and within limits");
+        }
+        Optional<Equipment> item = equipmentService.findOne(equipmentId);
+        if (item.isEmpty()) {
+            return Optional.empty();
+        }
+        int total = item.get().getTotalQuantity();
+        if (qty > total) {
+            return Optional.of(List.of());
+        }
+        LocalDate last = from.plusDays(searchHorizonDays + days - 2L);
+        List<Reservation> reservations = borrowRepo.findItemReservations(
+                equipmentId, AvailabilityIndex.ACTIVE_STATUSES, from, last);
+        int[] used = UsageSweep.dailyUsage(reservations, from, last);
+
+        // startedBy[d]: quantity of bookings starting on or before day d,
+        // endedBy[d]: ending on or before it; clamped to the horizon
+        int[] startedBy = null;
+        int[] endedBy = null;
+        if (confirmWithPolicy) {
+            startedBy = new int[used.length];
+            endedBy = new int[used.length];
+            for (Reservation r : reservations) {
+                startedBy[(int) Math.max(0, r.startDate().toEpochDay() - from.toEpochDay())] += r.qty();
+                endedBy[(int) Math.min(used.length - 1, r.endDate().toEpochDay() - from.toEpochDay())] += r.qty();
+            }
+            for (int d = 1; d < used.length; d++) {
+                startedBy[d] += startedBy[d - 1];
+                endedBy[d] += endedBy[d - 1];
+            }
+        }
+
+        List<Slot> slots = new ArrayList<>(count);
+        // indices of used[] in the current window, their values decreasing
+        int[] window = new int[used.length];
+        int head = 0;
+        int tail = 0;
+        for (int d = 0; d < used.length && slots.size() < count; d++) {
+            while (tail > head && used[window[tail - 1]] <= used[d]) {
+                tail--;
+            }
+            window[tail++] = d;
+            int start = d - days + 1;
+            if (start < 0) {
+                continue;
+            }
+            if (window[head] < start) {
+                head++;
+            }
+            int peak = used[window[head]];
+            if (peak + qty > total) {
+                continue;
+            }
+            LocalDate startDate = from.plusDays(start);
+            LocalDate endDate = from.plusDays(d);
+            if (confirmWithPolicy) {
+                int overlapSum = startedBy[d] - (start == 0 ? 0 : endedBy[start - 1]);
+                if (overlapSum + qty > total
+                        && !fitsPolicy(reservations, startDate, endDate, peak, overlapSum, qty, total)) {
+                    continue;
+                }
+            }
+            slots.add(new Slot(startDate, endDate));
+        }
+        return Optional.of(slots);
+    }
+
+    private boolean fitsPolicy(List<Reservation> reservations, LocalDate start, LocalDate end,
+                               int peak, int overlapSum, int qty, int total) {
+        int reserved = conflictPolicy.reservedFrom(peak, overlapSum);
+        if (reserved < 0) {
+            List<Reservation> overlapping = reservations.stream().filter(r -> r.overlaps(start, end)).toList();
+            reserved = conflictPolicy.reservedDuring(overlapping, start, end);
+        }
+        return reserved + qty <= total;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRequestStatusChanged(RequestStatusChanged event) {
+        evict(event.equipmentId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(EquipmentStockChanged event) {
+        // total quantity may have been edited
+        evict(event.equipmentId());
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private void evict(Long equipmentId) {
+        invalidations.incrementAndGet();
+        cache.keySet().removeIf(k -> k.equipmentId().equals(equipmentId));
+    }
+
+    private void remember(Key key, DailyAvailability calendar, long stamp) {
+        if (cache.size() >= maxEntries) {
+            Iterator<Key> it = cache.keySet().iterator();
+            while (cache.size() >= maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        cache.put(key, calendar);
+        // a booking change that landed while this was computed may have missed it
+        if (invalidations.get() != stamp) {
+            cache.remove(key, calendar);
+        }
+    }
+}
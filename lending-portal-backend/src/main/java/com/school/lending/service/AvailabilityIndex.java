@@ -0,0 +1,258 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.Reservation;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index of reserved quantity per equipment item.
+ *
+ * <p>Each item gets a {@link ReservationLedger} covering a rolling window of
+ * days (a few weeks of history plus the booking horizon). Conflict checks for
+ * date ranges inside the window are answered in O(log days) from memory;
+ * anything outside the window, or any query made before the index has been
+ * built, falls back to the SQL overlap finder.
+ *
+ * <p>The index is rebuilt from {@link BorrowRequestRepository} when the
+ * application starts and once a night so the window keeps rolling forward.
+ * Changes made inside a transaction are applied after it commits.
+ */
+@Component
+public class AvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityIndex.class);
+
+    static final Collection<BorrowStatus> ACTIVE_STATUSES = Arrays.asList(
+            BorrowStatus.APPROVED, BorrowStatus.ISSUED);
+
+    private final BorrowRequestRepository borrowRepo;
+    private final int retentionDays;
+    private final int horizonDays;
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    private volatile Map<Long, ReservationLedger> ledgers = new ConcurrentHashMap<>();
+    private volatile LocalDate origin;
+    private volatile boolean ready;
+
+    public AvailabilityIndex(BorrowRequestRepository borrowRepo,
+                             @Value("${app.availability.retention-days:31}") int retentionDays,
+                             @Value("${app.availability.horizon-days:730}") int horizonDays) {
+        this.borrowRepo = borrowRepo;
+        this.retentionDays = retentionDays;
+        this.horizonDays = horizonDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild every ledger from the database. Writers are blocked while the
+     * rebuild runs so no change is lost between the load and the swap.
+     */
+    @Scheduled(cron = "${app.availability.rebuild-cron:0 30 2 * * *}")
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            LocalDate start = LocalDate.now().minusDays(retentionDays);
+            int size = retentionDays + horizonDays;
+            Map<Long, ReservationLedger> fresh = new ConcurrentHashMap<>();
+            List<Reservation> active = borrowRepo.findReservations(ACTIVE_STATUSES, start, start.plusDays(size - 1L));
+            for (Reservation r : active) {
+                fresh.computeIfAbsent(r.equipmentId(), id -> new ReservationLedger(start, size)).add(r);
+            }
+            this.ledgers = fresh;
+            this.origin = start;
+            this.ready = true;
+            log.info("availability index rebuilt: {} reservations across {} items", active.size(), fresh.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quantity of the given item already held by APPROVED/ISSUED requests
+     * whose dates overlap the range.
+     *
+     * @param equipmentId equipment id
+     * @param start       range start (inclusive)
+     * @param end         range end (inclusive)
+     * @param ignoreId    optional request id to leave out of the total
+     * @return reserved quantity overlapping the range
+     */
+    public int reservedQuantity(Long equipmentId, LocalDate start, LocalDate end, Long ignoreId) {
+        if (ready && covers(start, end)) {
+            ReservationLedger ledger = ledgers.get(equipmentId);
+            return ledger == null ? 0 : ledger.overlappingQuantity(start, end, ignoreId);
+        }
+        return queryReservedQuantity(equipmentId, start, end, ignoreId);
+    }
+
+    /**
+     * Reservations of the given item overlapping the range, read from memory
+     * when the range is inside the window.
+     *
+     * @param equipmentId equipment id
+     * @param start       range start (inclusive)
+     * @param end         range end (inclusive)
+     * @param ignoreId    optional request id to leave out
+     * @return overlapping reservations
+     */
+    public List<Reservation> overlapping(Long equipmentId, LocalDate start, LocalDate end, Long ignoreId) {
+        if (ready && covers(start, end)) {
+            ReservationLedger ledger = ledgers.get(equipmentId);
+            return ledger == null ? List.of() : ledger.overlapping(start, end, ignoreId);
+        }
+        return borrowRepo
+                .findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                        equipmentId, ACTIVE_STATUSES, end, start)
+                .stream()
+                .filter(req -> ignoreId == null || !req.getId().equals(ignoreId))
+                .map(Reservation::of)
+                .toList();
+    }
+
+    /**
+     * Compute the reserved quantity straight from the database. This is the
+     * reference the index is checked against.
+     */
+    public int queryReservedQuantity(Long equipmentId, LocalDate start, LocalDate end, Long ignoreId) {
+        List<BorrowRequest> overlaps = borrowRepo
+                .findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                        equipmentId, ACTIVE_STATUSES, end, start);
+        return overlaps.stream()
+                .filter(req -> ignoreId == null || !req.getId().equals(ignoreId))
+                .mapToInt(BorrowRequest::getQty)
+                .sum();
+    }
+
+    /**
+     * Record that a request now holds stock. Safe to call more than once for
+     * the same request.
+     *
+     * @param request an APPROVED or ISSUED request
+     */
+    public void reserve(BorrowRequest request) {
+        Reservation reservation = Reservation.of(request);
+        afterCommit(() -> withLedgers(current -> {
+            LocalDate start = origin;
+            if (start != null) {
+                current.computeIfAbsent(reservation.equipmentId(),
+                        id -> new ReservationLedger(start, retentionDays + horizonDays)).add(reservation);
+            }
+        }));
+    }
+
+    /**
+     * Record that a request no longer holds stock (rejected or returned).
+     *
+     * @param request the request being released
+     */
+    public void release(BorrowRequest request) {
+        Long equipmentId = request.getGear().getId();
+        Long requestId = request.getId();
+        afterCommit(() -> withLedgers(current -> {
+            ReservationLedger ledger = current.get(equipmentId);
+            if (ledger != null) {
+                ledger.remove(requestId);
+            }
+        }));
+    }
+
+    /**
+     * Compare the index against the SQL path.
+     *
+     * <p>Checks that the index holds exactly the active reservations found in
+     * the database for its window, and that the reserved quantity reported for
+     * each reservation's own date range matches the SQL overlap sum.
+     *
+     * @return human readable descriptions of every mismatch; empty when the
+     * index is consistent
+     */
+    public List<String> selfCheck() {
+        List<String> problems = new ArrayList<>();
+        if (!ready) {
+            problems.add("index not built yet");
+            return problems;
+        }
+        LocalDate start = origin;
+        LocalDate end = start.plusDays(retentionDays + horizonDays - 1L);
+        Map<Long, ReservationLedger> current = ledgers;
+        Set<Long> expected = new HashSet<>();
+        for (Reservation r : borrowRepo.findReservations(ACTIVE_STATUSES, start, end)) {
+            expected.add(r.requestId());
+            ReservationLedger ledger = current.get(r.equipmentId());
+            if (ledger == null || !ledger.contains(r.requestId())) {
+                problems.add("request " + r.requestId() + " missing from index");
+            }
+        }
+        for (Map.Entry<Long, ReservationLedger> entry : current.entrySet()) {
+            for (Reservation r : entry.getValue().reservations()) {
+                if (!expected.contains(r.requestId())) {
+                    problems.add("request " + r.requestId() + " indexed but not active");
+                }
+                LocalDate from = r.startDate().isBefore(start) ? start : r.startDate();
+                LocalDate to = r.endDate().isAfter(end) ? end : r.endDate();
+                int indexed = entry.getValue().overlappingQuantity(from, to, null);
+                int queried = queryReservedQuantity(entry.getKey(), from, to, null);
+                if (indexed != queried) {
+                    problems.add("equipment " + entry.getKey() + " " + from + ".." + to
+                            + ": index=" + indexed + " sql=" + queried);
+                }
+            }
+        }
+        return problems;
+    }
+
+    private boolean covers(LocalDate start, LocalDate end) {
+        LocalDate first = origin;
+        return first != null
+                && !start.isBefore(first)
+                && !end.isAfter(first.plusDays(retentionDays + horizonDays - 1L));
+    }
+
+    private void withLedgers(Consumer<Map<Long, ReservationLedger>> action) {
+        rebuildLock.readLock().lock();
+        try {
+            action.accept(ledgers);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
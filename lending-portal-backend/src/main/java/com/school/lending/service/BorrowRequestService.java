@@ -1,16 +1,31 @@
 package com.school.lending.service;
 
+import com.school.lending.dto.BatchDecision;
+import com.school.lending.dto.CursorPage;
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.dto.PageCursor;
+import com.school.lending.dto.RequestFilter;
 import com.school.lending.model.*;
 import com.school.lending.repo.BorrowRequestRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
-import java.util.Arrays;
-import java.util.Collection;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class BorrowRequestService {
@@ -21,17 +36,56 @@ public class BorrowRequestService {
      * <p>Handles creation, conflict detection, approval/issuance/rejection and
      * return operations, coordinating between the {@link BorrowRequestRepository}
      * and {@link EquipmentService}.
+     *
+     * <p>Status transitions each run in their own short transaction. Both
+     * {@link BorrowRequest} and {@link Equipment} are versioned, so a
+     * transition that raced with another change fails at commit instead of
+     * overwriting it; it is then retried on freshly loaded state up to
+     * {@link #MAX_ATTEMPTS} times before the conflict is reported (409).
      */
 
-    private static final Collection<BorrowStatus> ACTIVE_STATUSES = Arrays.asList(
-            BorrowStatus.APPROVED, BorrowStatus.ISSUED);
+    static final int MAX_ATTEMPTS = 3;
+
+    /** Decision note on requests approved by the {@link PendingAllocator}. */
+    static final String AUTO_APPROVED_NOTE = "approved automatically";
+
+    /** Allocation note on pending requests that did not fit. */
+    static final String NO_CAPACITY_NOTE = "not enough stock left for these dates";
+
+    /** Allocation note on pending requests whose start date has passed. */
+    static final String STARTED_NOTE = "start date has passed";
+
+    /** Allocation note on requests queued on the waitlist. */
+    static final String WAITLISTED_NOTE = "fully booked, waiting for stock to free up";
+
+    /** Decision note on requests approved straight from the waitlist. */
+    static final String PROMOTED_NOTE = "approved from the waitlist";
+
+    /** Stands in for an unbounded end of a freed range. */
+    private static final LocalDate OPEN_END = LocalDate.of(9999, 12, 31);
 
     private final BorrowRequestRepository borrowRepo;
     private final EquipmentService equipmentService;
+    private final AvailabilityIndex availabilityIndex;
+    private final ConflictPolicy conflictPolicy;
+    private final EquipmentLocks equipmentLocks;
+    private final TransactionTemplate decisionTx;
+    private final CollectionVersions versions;
+    private final ApplicationEventPublisher events;
 
-    public BorrowRequestService(BorrowRequestRepository borrowRepo, EquipmentService equipmentService) {
+    public BorrowRequestService(BorrowRequestRepository borrowRepo, EquipmentService equipmentService,
+                                AvailabilityIndex availabilityIndex, ConflictPolicy conflictPolicy,
+                                EquipmentLocks equipmentLocks, PlatformTransactionManager transactionManager,
+                                CollectionVersions versions, ApplicationEventPublisher events) {
         this.borrowRepo = borrowRepo;
         this.equipmentService = equipmentService;
+        this.availabilityIndex = availabilityIndex;
+        this.conflictPolicy = conflictPolicy;
+        this.equipmentLocks = equipmentLocks;
+        this.decisionTx = new TransactionTemplate(transactionManager);
+        this.decisionTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.versions = versions;
+        this.events = events;
     }
 
     /**
@@ -47,7 +101,33 @@ public class BorrowRequestService {
     public BorrowRequest createRequest(UserAccount requester, Equipment gear, LocalDate start, LocalDate end, int qty) {
         BorrowRequest newReq = new BorrowRequest(requester, gear, start, end, qty);
         newReq.setStatus(BorrowStatus.PENDING);
-        return borrowRepo.save(newReq);
+        BorrowRequest saved = borrowRepo.save(newReq);
+        versions.requestsChanged();
+        publishStatus(saved);
+        return saved;
+    }
+
+    /**
+     * Queue a request that does not fit as WAITLISTED. It holds no stock; it
+     * is promoted by {@link #promoteWaitlisted} once a rejection, a return or
+     * a stock increase frees room for its dates.
+     *
+     * @param requester user who requests the item
+     * @param gear      equipment to borrow
+     * @param start     start date (inclusive)
+     * @param end       end date (inclusive)
+     * @param qty       quantity requested
+     * @return saved BorrowRequest
+     */
+    public BorrowRequest waitlistRequest(UserAccount requester, Equipment gear, LocalDate start, LocalDate end,
+                                         int qty) {
+        BorrowRequest newReq = new BorrowRequest(requester, gear, start, end, qty);
+        newReq.setStatus(BorrowStatus.WAITLISTED);
+        newReq.setAllocationNote(WAITLISTED_NOTE);
+        BorrowRequest saved = borrowRepo.save(newReq);
+        versions.requestsChanged();
+        publishStatus(saved);
+        return saved;
     }
 
     /**
@@ -79,10 +159,47 @@ public class BorrowRequestService {
         return borrowRepo.findByRequesterId(userId);
     }
 
+    /**
+     * Page through borrow requests, newest first.
+     *
+     * @param filter optional filters
+     * @param cursor cursor from the previous page, or null for the first
+     * @param limit  page size
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    public CursorPage<BorrowRequest> findPage(RequestFilter filter, String cursor, int limit) {
+        OffsetDateTime afterCreatedAt = null;
+        Long afterId = null;
+        if (cursor != null) {
+            String[] key = PageCursor.decode(cursor, 2);
+            try {
+                afterCreatedAt = OffsetDateTime.parse(key[0]);
+            } catch (DateTimeParseException ex) {
+                throw new IllegalArgumentException("bad cursor", ex);
+            }
+            afterId = Long.valueOf(key[1]);
+        }
+        List<BorrowRequest> rows = borrowRepo.findPage(filter.requesterId(), filter.status(), filter.equipmentId(),
+                filter.from(), filter.to(), afterCreatedAt, afterId, PageRequest.of(0, limit + 1));
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<BorrowRequest> page = rows.subList(0, limit);
+        BorrowRequest last = page.get(limit - 1);
+        return new CursorPage<>(page, PageCursor.encode(last.getCreatedAt().toString(), String.valueOf(last.getId())));
+    }
+
     /**
      * Check whether a requested quantity for a date range would conflict with
      * existing approved/issued requests or exceed total inventory.
      *
+     * <p>Reserved quantity comes from the in-memory {@link AvailabilityIndex},
+     * which only falls back to the database for ranges outside its window.
+     * The overlap sum is checked first because it bounds every
+     * {@link ConflictPolicy}; only when it does not leave room is the active
+     * policy asked for the exact figure.
+     *
      * @param equipmentId equipment id
      * @param start       requested start date
      * @param end         requested end date
@@ -93,37 +210,68 @@ public class BorrowRequestService {
     public boolean isConflicting(Long equipmentId, LocalDate start, LocalDate end, int qty, Long ignoreId) {
         return equipmentService.findOne(equipmentId)
                 .map(eq -> {
-                    List<BorrowRequest> overlaps = borrowRepo
-                            .findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
-                                    equipmentId, ACTIVE_STATUSES, end, start);
-                    int ongoing = overlaps.stream()
-                            .filter(req -> ignoreId == null || !req.getId().equals(ignoreId))
-                            .mapToInt(BorrowRequest::getQty)
-                            .sum();
-                    return ongoing + qty > eq.getTotalQuantity();
+                    if (availabilityIndex.reservedQuantity(equipmentId, start, end, ignoreId) + qty
+                            <= eq.getTotalQuantity()) {
+                        return false;
+                    }
+                    List<Reservation> overlaps = availabilityIndex.overlapping(equipmentId, start, end, ignoreId);
+                    return conflictPolicy.reservedDuring(overlaps, start, end) + qty > eq.getTotalQuantity();
                 }).orElse(true);
     }
 
     /**
      * Approve a pending request if it does not conflict with other bookings.
      *
+     * <p>Approvals for the same item are serialized: the item's
+     * {@link EquipmentLocks} stripe is held around a dedicated transaction
+     * that also locks the equipment row, and is released only after the
+     * commit has updated the {@link AvailabilityIndex}. Approvals for other
+     * items proceed in parallel.
+     *
+     * <p>The capacity check itself reads the item's committed bookings from
+     * the database while the row lock is held, not the node-local index, so
+     * a concurrent approval on another node either committed before the lock
+     * was granted and is counted, or waits for this one.
+     *
      * @param request request to approve
      * @param note    optional decision note
      * @return Optional containing updated BorrowRequest on success
      */
-    @Transactional
     public Optional<BorrowRequest> approveRequest(BorrowRequest request, String note) {
         if (request.getStatus() != BorrowStatus.PENDING) {
             return Optional.empty();
         }
-        if (isConflicting(request.getGear().getId(), request.getStartDate(), request.getEndDate(),
-                request.getQty(), request.getId())) {
-            return Optional.empty();
+        Long equipmentId = request.getGear().getId();
+        return equipmentLocks.withLock(equipmentId, () -> decide(request, current -> {
+            if (current.getStatus() != BorrowStatus.PENDING) {
+                return Optional.empty();
+            }
+            Optional<Equipment> item = equipmentService.lockForBooking(equipmentId);
+            if (item.isEmpty() || !fitsCommitted(item.get(), current)) {
+                return Optional.empty();
+            }
+            current.setStatus(BorrowStatus.APPROVED);
+            current.setDecisionDate(OffsetDateTime.now());
+            current.setDecisionNote(note);
+            BorrowRequest saved = borrowRepo.save(current);
+            availabilityIndex.reserve(saved);
+            return Optional.of(saved);
+        }));
+    }
+
+    /**
+     * Check a request against the bookings of its item as committed in the
+     * database. Only meaningful while the item's row is locked.
+     */
+    private boolean fitsCommitted(Equipment item, BorrowRequest request) {
+        List<Reservation> overlaps = borrowRepo.findItemReservations(item.getId(),
+                AvailabilityIndex.ACTIVE_STATUSES, request.getStartDate(), request.getEndDate());
+        int total = item.getTotalQuantity();
+        if (overlaps.stream().mapToInt(Reservation::qty).sum() + request.getQty() <= total) {
+            return true;
         }
-        request.setStatus(BorrowStatus.APPROVED);
-        request.setDecisionDate(OffsetDateTime.now());
-        request.setDecisionNote(note);
-        return Optional.of(borrowRepo.save(request));
+        return conflictPolicy.reservedDuring(overlaps, request.getStartDate(), request.getEndDate())
+                + request.getQty() <= total;
     }
 
     /**
@@ -132,16 +280,18 @@ public class BorrowRequestService {
      * @param request request to issue
      * @return Optional containing updated BorrowRequest on success
      */
-    @Transactional
     public Optional<BorrowRequest> issue(BorrowRequest request) {
-        if (request.getStatus() != BorrowStatus.APPROVED) {
-            return Optional.empty();
-        }
-        request.setStatus(BorrowStatus.ISSUED);
-        request.setDecisionDate(OffsetDateTime.now());
-        borrowRepo.save(request);
-        equipmentService.handOut(request.getGear().getId(), request.getQty());
-        return Optional.of(request);
+        return decide(request, current -> {
+            if (current.getStatus() != BorrowStatus.APPROVED) {
+                return Optional.empty();
+            }
+            current.setStatus(BorrowStatus.ISSUED);
+            current.setDecisionDate(OffsetDateTime.now());
+            BorrowRequest saved = borrowRepo.save(current);
+            availabilityIndex.reserve(saved);
+            equipmentService.handOut(saved.getGear().getId(), saved.getQty());
+            return Optional.of(saved);
+        });
     }
 
     /**
@@ -151,15 +301,22 @@ public class BorrowRequestService {
      * @param note    optional rejection note
      * @return Optional containing updated BorrowRequest on success
      */
-    @Transactional
     public Optional<BorrowRequest> reject(BorrowRequest request, String note) {
-        if (request.getStatus() == BorrowStatus.REJECTED || request.getStatus() == BorrowStatus.RETURNED) {
-            return Optional.empty();
-        }
-        request.setStatus(BorrowStatus.REJECTED);
-        request.setDecisionNote(note);
-        request.setDecisionDate(OffsetDateTime.now());
-        return Optional.of(borrowRepo.save(request));
+        return decide(request, current -> {
+            if (current.getStatus() == BorrowStatus.REJECTED || current.getStatus() == BorrowStatus.RETURNED) {
+                return Optional.empty();
+            }
+            boolean heldStock = AvailabilityIndex.ACTIVE_STATUSES.contains(current.getStatus());
+            current.setStatus(BorrowStatus.REJECTED);
+            current.setDecisionNote(note);
+            current.setDecisionDate(OffsetDateTime.now());
+            BorrowRequest saved = borrowRepo.save(current);
+            if (heldStock) {
+                availabilityIndex.release(saved);
+                publishFreed(saved);
+            }
+            return Optional.of(saved);
+        });
     }
 
     /**
@@ -168,15 +325,304 @@ public class BorrowRequestService {
      * @param request request to mark returned
      * @return Optional containing updated BorrowRequest on success
      */
-    @Transactional
     public Optional<BorrowRequest> markReturned(BorrowRequest request) {
-        if (request.getStatus() != BorrowStatus.ISSUED) {
-            return Optional.empty();
+        return decide(request, current -> {
+            if (current.getStatus() != BorrowStatus.ISSUED) {
+                return Optional.empty();
+            }
+            current.setStatus(BorrowStatus.RETURNED);
+            current.setDecisionDate(OffsetDateTime.now());
+            BorrowRequest saved = borrowRepo.save(current);
+            availabilityIndex.release(saved);
+            equipmentService.bringBack(saved.getGear().getId(), saved.getQty());
+            publishFreed(saved);
+            return Optional.of(saved);
+        });
+    }
+
+    /**
+     * Apply many approve/reject decisions at once.
+     *
+     * <p>Requests are grouped by item and each group is decided in one
+     * transaction, under the item's {@link EquipmentLocks} stripe and row
+     * lock like a single approval. Rejections are applied first so the stock
+     * they free is available to the approvals of the same batch. Approvals
+     * are then allocated greedily, oldest request first, against a
+     * {@link CapacityProfile} loaded once for the item, instead of one
+     * conflict check and one transaction per request.
+     *
+     * @param decisions decisions to apply; repeats of an id after the first are ignored
+     * @return one outcome per distinct id, in input order
+     */
+    public List<DecisionOutcome> decideBatch(List<BatchDecision> decisions) {
+        Map<Long, BatchDecision> byId = new LinkedHashMap<>();
+        for (BatchDecision decision : decisions) {
+            byId.putIfAbsent(decision.id, decision);
+        }
+        Map<Long, List<Long>> idsByItem = new LinkedHashMap<>();
+        for (BorrowRequest request : borrowRepo.findAllById(byId.keySet())) {
+            idsByItem.computeIfAbsent(request.getGear().getId(), id -> new ArrayList<>()).add(request.getId());
+        }
+        Map<Long, DecisionOutcome> outcomes = new HashMap<>();
+        idsByItem.forEach((equipmentId, ids) -> equipmentLocks.withLock(equipmentId,
+                () -> decideGroup(equipmentId, ids, byId, AllocationPolicy.FIRST_COME, false, outcomes)));
+        return byId.keySet().stream()
+                .map(id -> outcomes.getOrDefault(id,
+                        new DecisionOutcome(id, DecisionOutcome.Result.NOT_FOUND, null)))
+                .toList();
+    }
+
+    /**
+     * Approve the pending requests of one item that still fit, served in the
+     * policy's order, and record on each of the others why it is still
+     * waiting. Runs like one item group of {@link #decideBatch}; requests
+     * whose start date has passed are left alone.
+     *
+     * @param equipmentId item the requests are for
+     * @param ids         ids of its pending requests
+     * @param policy      order in which the requests are served
+     * @return one outcome per request found
+     */
+    public List<DecisionOutcome> allocatePending(Long equipmentId, List<Long> ids, AllocationPolicy policy) {
+        Map<Long, BatchDecision> byId = new HashMap<>();
+        for (Long id : ids) {
+            BatchDecision approve = new BatchDecision();
+            approve.id = id;
+            approve.action = BatchDecision.Action.APPROVE;
+            approve.note = AUTO_APPROVED_NOTE;
+            byId.put(id, approve);
+        }
+        Map<Long, DecisionOutcome> outcomes = new HashMap<>();
+        equipmentLocks.withLock(equipmentId, () -> decideGroup(equipmentId, ids, byId, policy, true, outcomes));
+        return new ArrayList<>(outcomes.values());
+    }
+
+    private Void decideGroup(Long equipmentId, List<Long> ids, Map<Long, BatchDecision> byId,
+                             AllocationPolicy policy, boolean automatic, Map<Long, DecisionOutcome> outcomes) {
+        for (int attempt = 1; ; attempt++) {
+            GroupResult result = new GroupResult();
+            try {
+                decisionTx.executeWithoutResult(tx ->
+                        applyGroup(equipmentId, ids, byId, policy, automatic, result));
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt < MAX_ATTEMPTS) {
+                    continue;
+                }
+                ids.forEach(id -> outcomes.put(id,
+                        new DecisionOutcome(id, DecisionOutcome.Result.CHANGED, null)));
+                return null;
+            }
+            outcomes.putAll(result.outcomes);
+            if (!result.decided.isEmpty() || !result.noted.isEmpty()) {
+                versions.requestsChanged();
+            }
+            result.decided.forEach(this::publishStatus);
+            return null;
+        }
+    }
+
+    private void applyGroup(Long equipmentId, List<Long> ids, Map<Long, BatchDecision> byId,
+                            AllocationPolicy policy, boolean automatic, GroupResult result) {
+        List<BorrowRequest> rows = new ArrayList<>(borrowRepo.findAllById(ids));
+        rows.sort(AllocationPolicy.FIRST_COME.order());
+        List<BorrowRequest> approvals = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (BorrowRequest current : rows) {
+            BatchDecision decision = byId.get(current.getId());
+            if (decision.action == BatchDecision.Action.APPROVE) {
+                if (current.getStatus() != BorrowStatus.PENDING) {
+                    result.outcome(current, DecisionOutcome.Result.INVALID_STATE);
+                } else if (automatic && current.getStartDate().isBefore(today)) {
+                    result.note(current, STARTED_NOTE);
+                    result.outcome(current, DecisionOutcome.Result.INVALID_STATE);
+                } else {
+                    approvals.add(current);
+                }
+                continue;
+            }
+            if (current.getStatus() == BorrowStatus.REJECTED || current.getStatus() == BorrowStatus.RETURNED) {
+                result.outcome(current, DecisionOutcome.Result.INVALID_STATE);
+                continue;
+            }
+            boolean heldStock = AvailabilityIndex.ACTIVE_STATUSES.contains(current.getStatus());
+            current.setStatus(BorrowStatus.REJECTED);
+            current.setDecisionNote(decision.note);
+            current.setDecisionDate(OffsetDateTime.now());
+            current.setAllocationNote(null);
+            if (heldStock) {
+                availabilityIndex.release(current);
+                publishFreed(current);
+            }
+            result.decided(current);
+        }
+        if (!approvals.isEmpty()) {
+            approvals.sort(policy.order());
+            Optional<Equipment> item = equipmentService.lockForBooking(equipmentId);
+            LocalDate from = approvals.stream().map(BorrowRequest::getStartDate).min(LocalDate::compareTo).get();
+            LocalDate to = approvals.stream().map(BorrowRequest::getEndDate).max(LocalDate::compareTo).get();
+            // the query flushes the rejections above, so the stock they held is not counted
+            CapacityProfile profile = item.map(eq -> new CapacityProfile(eq.getTotalQuantity(), from, to,
+                    borrowRepo.findItemReservations(equipmentId, AvailabilityIndex.ACTIVE_STATUSES, from, to),
+                    conflictPolicy)).orElse(null);
+            for (BorrowRequest current : approvals) {
+                if (profile == null || !profile.fits(current.getStartDate(), current.getEndDate(), current.getQty())) {
+                    if (automatic) {
+                        result.note(current, NO_CAPACITY_NOTE);
+                    }
+                    result.outcome(current, DecisionOutcome.Result.NO_CAPACITY);
+                    continue;
+                }
+                current.setStatus(BorrowStatus.APPROVED);
+                current.setDecisionDate(OffsetDateTime.now());
+                current.setDecisionNote(byId.get(current.getId()).note);
+                current.setAllocationNote(null);
+                profile.add(Reservation.of(current));
+                availabilityIndex.reserve(current);
+                result.decided(current);
+            }
+        }
+        List<BorrowRequest> dirty = new ArrayList<>(result.decided);
+        dirty.addAll(result.noted);
+        borrowRepo.saveAll(dirty);
+    }
+
+    /**
+     * Promote WAITLISTED requests of an item whose dates overlap a range in
+     * which stock was freed, oldest first, as long as they fit.
+     *
+     * <p>Only entries overlapping the range are read, through the
+     * (equipment, status, dates) index, so a return re-checks the few
+     * requests it can help rather than the whole waitlist. Promoted requests
+     * are counted against the stock as they go, PENDING ones included, so
+     * one freed unit is never offered to several waiting requests. Entries
+     * whose start date has passed stay where they are.
+     *
+     * @param equipmentId item whose stock was freed
+     * @param from        first freed day, or null when unbounded
+     * @param to          last freed day, or null when unbounded
+     * @param target      PENDING to hand promoted requests to staff, or
+     *                    APPROVED to grant them directly
+     * @return the promoted requests
+     */
+    public List<BorrowRequest> promoteWaitlisted(Long equipmentId, LocalDate from, LocalDate to,
+                                                 BorrowStatus target) {
+        return equipmentLocks.withLock(equipmentId, () -> {
+            List<BorrowRequest> promoted = decisionTx.execute(tx -> applyPromotion(equipmentId, from, to, target));
+            if (!promoted.isEmpty()) {
+                versions.requestsChanged();
+                promoted.forEach(this::publishStatus);
+            }
+            return promoted;
+        });
+    }
+
+    private List<BorrowRequest> applyPromotion(Long equipmentId, LocalDate from, LocalDate to, BorrowStatus target) {
+        LocalDate today = LocalDate.now();
+        LocalDate start = from == null || from.isBefore(today) ? today : from;
+        LocalDate end = to == null ? OPEN_END : to;
+        if (end.isBefore(start)) {
+            return List.of();
+        }
+        List<BorrowRequest> waiting = new ArrayList<>(borrowRepo
+                .findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                        equipmentId, List.of(BorrowStatus.WAITLISTED), end, start));
+        waiting.removeIf(r -> r.getStartDate().isBefore(today));
+        if (waiting.isEmpty()) {
+            return List.of();
+        }
+        Optional<Equipment> item = equipmentService.lockForBooking(equipmentId);
+        if (item.isEmpty()) {
+            return List.of();
+        }
+        waiting.sort(AllocationPolicy.FIRST_COME.order());
+        LocalDate lo = waiting.stream().map(BorrowRequest::getStartDate).min(LocalDate::compareTo).get();
+        LocalDate hi = waiting.stream().map(BorrowRequest::getEndDate).max(LocalDate::compareTo).get();
+        CapacityProfile profile = new CapacityProfile(item.get().getTotalQuantity(), lo, hi,
+                borrowRepo.findItemReservations(equipmentId, AvailabilityIndex.ACTIVE_STATUSES, lo, hi),
+                conflictPolicy);
+        List<BorrowRequest> promoted = new ArrayList<>();
+        for (BorrowRequest current : waiting) {
+            if (!profile.fits(current.getStartDate(), current.getEndDate(), current.getQty())) {
+                continue;
+            }
+            current.setStatus(target);
+            current.setAllocationNote(null);
+            if (target == BorrowStatus.APPROVED) {
+                current.setDecisionDate(OffsetDateTime.now());
+                current.setDecisionNote(PROMOTED_NOTE);
+                availabilityIndex.reserve(current);
+            }
+            profile.add(Reservation.of(current));
+            promoted.add(current);
+        }
+        borrowRepo.saveAll(promoted);
+        return promoted;
+    }
+
+    /**
+     * What happened to one item group: outcomes by id, requests whose status
+     * changed, and requests that only got a new allocation note.
+     */
+    private static final class GroupResult {
+        final Map<Long, DecisionOutcome> outcomes = new HashMap<>();
+        final List<BorrowRequest> decided = new ArrayList<>();
+        final List<BorrowRequest> noted = new ArrayList<>();
+
+        void outcome(BorrowRequest request, DecisionOutcome.Result result) {
+            outcomes.put(request.getId(), new DecisionOutcome(request.getId(), result, request.getStatus()));
+        }
+
+        void decided(BorrowRequest request) {
+            decided.add(request);
+            outcome(request, DecisionOutcome.Result.APPLIED);
+        }
+
+        void note(BorrowRequest request, String note) {
+            // unchanged notes are not written again on every run
+            if (!Objects.equals(note, request.getAllocationNote())) {
+                request.setAllocationNote(note);
+                noted.add(request);
+            }
+        }
+    }
+
+    /**
+     * Apply a status transition in its own transaction, retrying on a version
+     * conflict with the request reloaded from the database.
+     *
+     * @throws OptimisticLockingFailureException when every attempt conflicted
+     */
+    private Optional<BorrowRequest> decide(BorrowRequest request,
+                                           Function<BorrowRequest, Optional<BorrowRequest>> transition) {
+        BorrowRequest current = request;
+        for (int attempt = 1; ; attempt++) {
+            BorrowRequest target = current;
+            try {
+                Optional<BorrowRequest> decided = decisionTx.execute(tx -> transition.apply(target));
+                if (decided.isPresent()) {
+                    versions.requestsChanged();
+                    publishStatus(decided.get());
+                }
+                return decided;
+            } catch (OptimisticLockingFailureException ex) {
+                if (attempt >= MAX_ATTEMPTS || request.getId() == null) {
+                    throw ex;
+                }
+                current = borrowRepo.findById(request.getId()).orElseThrow(() -> ex);
+            }
+        }
+    }
+
+    private void publishFreed(BorrowRequest released) {
+        events.publishEvent(new CapacityFreed(released.getGear().getId(),
+                released.getStartDate(), released.getEndDate()));
+    }
+
+    private void publishStatus(BorrowRequest saved) {
+        if (saved == null || saved.getRequester() == null || saved.getGear() == null) {
+            return;
         }
-        request.setStatus(BorrowStatus.RETURNED);
-        request.setDecisionDate(OffsetDateTime.now());
-        borrowRepo.save(request);
-        equipmentService.bringBack(request.getGear().getId(), request.getQty());
-        return Optional.of(request);
+        events.publishEvent(new RequestStatusChanged(saved.getId(), saved.getRequester().getId(),
+                saved.getGear().getId(), saved.getStatus()));
     }
 }
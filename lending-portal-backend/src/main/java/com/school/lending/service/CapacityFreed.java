@@ -0,0 +1,15 @@
+package com.school.lending.service;
+
+import java.time.LocalDate;
+
+/**
+ * Published when stock of an item may have been freed for a range of days:
+ * a booking holding it was rejected or returned, or the item's total
+ * quantity went up. Listeners only need to re-check what overlaps the range.
+ *
+ * @param equipmentId id of the item
+ * @param from        first freed day, or null when unbounded
+ * @param to          last freed day, or null when unbounded
+ */
+public record CapacityFreed(Long equipmentId, LocalDate from, LocalDate to) {
+}
@@ -0,0 +1,117 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Working copy of one item's bookings over a fixed range of days, used to
+ * decide many requests for the item against a single load.
+ *
+ * <p>Per-day usage is kept as a plain array, so the peak of a request's
+ * range costs one pass over its days. Two Fenwick trees of quantity starting
+ * and ending on each day give the overlap sum of any range in O(log days),
+ * as in {@link ReservationLedger}. Both policies shipped with the
+ * application decide from those two figures through
+ * {@link ConflictPolicy#reservedFrom}, so a check never depends on how many
+ * bookings have been granted so far. Only a policy that needs the
+ * reservations themselves falls back to listing the overlapping ones.
+ */
+final class CapacityProfile {
+
+    private final LocalDate origin;
+    private final int total;
+    private final ConflictPolicy policy;
+    private final int[] used;
+    private final long[] startTree;
+    private final long[] endTree;
+    private final List<Reservation> reservations = new ArrayList<>();
+
+    /**
+     * @param total    units the item owns
+     * @param from     first day covered (inclusive)
+     * @param to       last day covered (inclusive)
+     * @param existing active reservations overlapping the range
+     * @param policy   policy the approval check uses
+     */
+    CapacityProfile(int total, LocalDate from, LocalDate to, List<Reservation> existing, ConflictPolicy policy) {
+        this.origin = from;
+        this.total = total;
+        this.policy = policy;
+        int days = (int) (to.toEpochDay() - from.toEpochDay() + 1);
+        this.used = new int[days];
+        this.startTree = new long[days + 1];
+        this.endTree = new long[days + 1];
+        existing.forEach(this::add);
+    }
+
+    /**
+     * Check whether {@code qty} more units fit on every day of the range.
+     *
+     * @param start first day (inclusive), within the profile
+     * @param end   last day (inclusive), within the profile
+     * @param qty   units wanted
+     * @return true when the booking would be accepted
+     */
+    boolean fits(LocalDate start, LocalDate end, int qty) {
+        int from = offset(start);
+        int to = offset(end);
+        int peak = 0;
+        for (int d = from; d <= to; d++) {
+            peak = Math.max(peak, used[d]);
+        }
+        // no policy counts less than the peak
+        if (peak + qty > total) {
+            return false;
+        }
+        int overlapSum = (int) (prefix(startTree, to) - prefix(endTree, from - 1));
+        if (overlapSum + qty <= total) {
+            return true;
+        }
+        int reserved = policy.reservedFrom(peak, overlapSum);
+        if (reserved < 0) {
+            List<Reservation> overlapping = reservations.stream().filter(r -> r.overlaps(start, end)).toList();
+            reserved = policy.reservedDuring(overlapping, start, end);
+        }
+        return reserved + qty <= total;
+    }
+
+    /**
+     * Count a reservation against the profile. Days outside the profile are
+     * ignored.
+     */
+    void add(Reservation reservation) {
+        int from = Math.max(0, offset(reservation.startDate()));
+        int to = Math.min(used.length - 1, offset(reservation.endDate()));
+        if (from > to) {
+            return;
+        }
+        for (int d = from; d <= to; d++) {
+            used[d] += reservation.qty();
+        }
+        // clamped to the profile, which keeps sums exact for ranges inside it
+        addAt(startTree, from, reservation.qty());
+        addAt(endTree, to, reservation.qty());
+        reservations.add(reservation);
+    }
+
+    private int offset(LocalDate day) {
+        return (int) (day.toEpochDay() - origin.toEpochDay());
+    }
+
+    private void addAt(long[] tree, int offset, long delta) {
+        for (int i = offset + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private long prefix(long[] tree, int offset) {
+        long sum = 0;
+        for (int i = offset + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
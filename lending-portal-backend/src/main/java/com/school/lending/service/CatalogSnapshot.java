@@ -0,0 +1,130 @@
+package com.school.lending.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.lending.dto.CursorPage;
+import com.school.lending.model.Equipment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Catalog listings held as ready-encoded JSON, plus a gzip copy for larger
+ * bodies, so the equipment list endpoint writes bytes instead of querying and
+ * serializing for every caller. The catalog is the same for every user.
+ *
+ * <p>Each view (category, available-only, cursor, limit) is stamped with the
+ * equipment {@link CollectionVersions version} it was built from. A change to
+ * the catalog does not rebuild anything eagerly; each view is rebuilt on its
+ * next request, from {@link EquipmentCache} rows that are mostly still warm,
+ * so only the views that are actually requested are re-encoded.
+ */
+@Component
+public class CatalogSnapshot {
+
+    /**
+     * One encoded view of the catalog.
+     *
+     * @param json       body as UTF-8 JSON
+     * @param gzip       the same body gzip-compressed, or null when too small to bother
+     * @param nextCursor cursor of the following page, or null on the last page
+     */
+    public record View(byte[] json, byte[] gzip, String nextCursor) {
+    }
+
+    private record Key(String categoryKey, boolean onlyAvailable, String cursor, int limit) {
+    }
+
+    private record Stamped(long version, View view) {
+    }
+
+    private final EquipmentService equipmentService;
+    private final CollectionVersions versions;
+    private final ObjectMapper mapper;
+    private final int maxViews;
+    private final int gzipMinBytes;
+    private final Map<Key, Stamped> views = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public CatalogSnapshot(EquipmentService equipmentService, CollectionVersions versions, ObjectMapper mapper,
+                           @Value("${app.catalog.snapshot.max-views:200}") int maxViews,
+                           @Value("${app.catalog.snapshot.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.equipmentService = equipmentService;
+        this.versions = versions;
+        this.mapper = mapper;
+        this.maxViews = maxViews;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * Return the encoded view for a catalog listing, rebuilding it when the
+     * catalog changed since it was encoded.
+     *
+     * @param category      optional category filter (case-insensitive)
+     * @param onlyAvailable only items with availableQuantity &gt; 0
+     * @param cursor        cursor from the previous page, or null
+     * @param limit         page size
+     * @return the encoded view
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    public View view(String category, boolean onlyAvailable, String cursor, int limit) {
+        // read before building, so a change that lands mid-build leaves this
+        // view stamped as outdated
+        long version = versions.equipment();
+        Key key = new Key(category == null ? null : Equipment.keyFor(category), onlyAvailable, cursor, limit);
+        Stamped cached = views.get(key);
+        if (cached != null && cached.version() == version) {
+            hits.incrementAndGet();
+            return cached.view();
+        }
+        rebuilds.incrementAndGet();
+        CursorPage<Equipment> page = equipmentService.listPage(category, onlyAvailable, cursor, limit);
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(page.items());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("catalog could not be serialized", ex);
+        }
+        View view = new View(json, json.length >= gzipMinBytes ? gzip(json) : null, page.nextCursor());
+        if (views.size() >= maxViews) {
+            Iterator<Key> it = views.keySet().iterator();
+            while (views.size() >= maxViews && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        views.put(key, new Stamped(version, view));
+        return view;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getRebuilds() {
+        return rebuilds.get();
+    }
+
+    public int getViewCount() {
+        return views.size();
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(raw);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
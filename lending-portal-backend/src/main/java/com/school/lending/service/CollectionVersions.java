@@ -0,0 +1,102 @@
+package com.school.lending.service;
+
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change versions of the equipment and borrow request collections, used as
+ * ETags for the list endpoints so unchanged listings are answered with 304
+ * before any query runs.
+ *
+ * <p>Versions only grow. They start at the node's start time so that an ETag
+ * handed out before a restart never matches again. Writes bump the version
+ * once their transaction completes: a reader may briefly pair new data with
+ * the old version (and simply re-download once more), but never the new
+ * version with old data. The bump runs after {@link EquipmentCache}'s own
+ * completion-time eviction (registered first by the same write), so anything
+ * rebuilt for the new version reads committed rows.
+ */
+@Component
+public class CollectionVersions {
+
+    /** Clients must revalidate on every use; the data is per-user. */
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final AtomicLong equipment;
+    private final AtomicLong requests;
+
+    public CollectionVersions() {
+        long start = System.currentTimeMillis();
+        this.equipment = new AtomicLong(start);
+        this.requests = new AtomicLong(start);
+    }
+
+    public long equipment() {
+        return equipment.get();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    /**
+     * Record a change to any equipment row.
+     */
+    public void equipmentChanged() {
+        afterCompletion(equipment::incrementAndGet);
+    }
+
+    /**
+     * Record a change to any borrow request.
+     */
+    public void requestsChanged() {
+        afterCompletion(requests::incrementAndGet);
+    }
+
+    /**
+     * Build a strong ETag from a collection version and everything else the
+     * response depends on (caller, filters, cursor). The variant is
+     * length-prefixed and hashed with SHA-256, of which 128 bits are kept,
+     * so two views of the same version only share an ETag by a digest
+     * collision.
+     *
+     * @param version collection version(s) the response was built from
+     * @param variant request inputs that shape the response
+     * @return quoted ETag value
+     */
+    public static String etag(String version, Object... variant) {
+        StringBuilder normalized = new StringBuilder();
+        for (Object part : variant) {
+            String value = String.valueOf(part);
+            normalized.append(value.length()).append(':').append(value);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + version + "-" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Strategy deciding how much of an item counts as taken during a date range.
+ *
+ * <p>Implementations receive the reservations overlapping the range and
+ * return the quantity that must be treated as unavailable for a new booking
+ * covering the whole range. The result must never exceed the plain sum of the
+ * overlapping quantities; {@link BorrowRequestService} relies on that to skip
+ * the policy when the sum alone leaves enough room.
+ *
+ * <p>The active policy is chosen with {@code app.borrow.conflict-policy}
+ * ({@code peak} by default, or {@code overlap-sum}).
+ */
+public interface ConflictPolicy {
+
+    /**
+     * Quantity unavailable during {@code [start, end]}.
+     *
+     * @param overlapping reservations overlapping the range
+     * @param start       range start (inclusive)
+     * @param end         range end (inclusive)
+     * @return quantity to treat as reserved for the whole range
+     */
+    int reservedDuring(List<Reservation> overlapping, LocalDate start, LocalDate end);
+
+    /**
+     * The figure {@link #reservedDuring} would return, computed from two
+     * aggregates that callers deciding many requests can keep up to date
+     * cheaply instead of listing the overlapping reservations each time.
+     *
+     * @param peak       highest quantity in use on any single day of the range
+     * @param overlapSum sum of the quantities of all overlapping reservations
+     * @return quantity to treat as reserved, or -1 when the policy needs the
+     *         reservations themselves
+     */
+    default int reservedFrom(int peak, int overlapSum) {
+        return -1;
+    }
+}
@@ -0,0 +1,243 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Equipment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache of equipment rows and catalog query results.
+ *
+ * <p>Rows are cached by id; a catalog query (category, available-only,
+ * position and size) caches only the ids it returned, so a query hit whose
+ * rows are all cached costs no database access. Callers always receive
+ * {@link Equipment#copy() copies}.
+ *
+ * <p>Writers invalidate through {@link #itemChanged} (any field may have
+ * changed, including category and existence) or {@link #stockChanged} (only
+ * the available quantity moved, so just available-only queries are dropped).
+ * Invalidation happens immediately and again when the surrounding
+ * transaction completes, so a reader cannot re-cache the old row while the
+ * write is uncommitted. A load that raced an invalidation is not kept.
+ */
+@Component
+public class EquipmentCache {
+
+    /**
+     * Cache key of a catalog query. {@code limit} of 0 means unpaged.
+     */
+    public record CatalogQuery(String categoryKey, boolean onlyAvailable, Long afterId, int limit) {
+    }
+
+    private final int maxItems;
+    private final int maxQueries;
+    private final Map<Long, Equipment> rows = new ConcurrentHashMap<>();
+    private final Map<CatalogQuery, List<Long>> queries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public EquipmentCache() {
+        this(5_000, 1_000);
+    }
+
+    @Autowired
+    public EquipmentCache(@Value("${app.catalog.cache.max-items:5000}") int maxItems,
+                          @Value("${app.catalog.cache.max-queries:1000}") int maxQueries) {
+        this.maxItems = maxItems;
+        this.maxQueries = maxQueries;
+    }
+
+    /**
+     * Look up one item, loading and caching it on a miss.
+     *
+     * @param id     equipment id
+     * @param loader database lookup used on a miss
+     * @return a copy of the item, or empty when it does not exist
+     */
+    public Optional<Equipment> row(Long id, Function<Long, Optional<Equipment>> loader) {
+        Equipment cached = rows.get(id);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(cached.copy());
+        }
+        misses.incrementAndGet();
+        long stamp = invalidations.get();
+        Optional<Equipment> loaded = loader.apply(id);
+        loaded.ifPresent(eq -> remember(eq, stamp));
+        return loaded.map(Equipment::copy);
+    }
+
+    /**
+     * Run a catalog query, answering from cached ids and rows when possible.
+     *
+     * @param query      cache key describing the query
+     * @param loader     runs the query against the database on a miss
+     * @param rowsLoader loads rows by id for cached ids whose row was evicted
+     * @return copies of the matching items, in query order
+     */
+    public List<Equipment> query(CatalogQuery query, Supplier<List<Equipment>> loader,
+                                 Function<Collection<Long>, List<Equipment>> rowsLoader) {
+        List<Long> ids = queries.get(query);
+        if (ids != null) {
+            List<Equipment> found = fromRows(ids, rowsLoader);
+            if (found != null) {
+                hits.incrementAndGet();
+                return found;
+            }
+        }
+        misses.incrementAndGet();
+        long stamp = invalidations.get();
+        List<Equipment> loaded = loader.get();
+        List<Long> loadedIds = new ArrayList<>(loaded.size());
+        List<Equipment> out = new ArrayList<>(loaded.size());
+        for (Equipment eq : loaded) {
+            remember(eq, stamp);
+            loadedIds.add(eq.getId());
+            out.add(eq.copy());
+        }
+        List<Long> frozen = List.copyOf(loadedIds);
+        bound(queries, maxQueries);
+        queries.put(query, frozen);
+        if (invalidations.get() != stamp) {
+            queries.remove(query, frozen);
+        }
+        return out;
+    }
+
+    /**
+     * An item was created, edited or deleted: drop its row and every cached
+     * query, since category, ordering or membership may have changed.
+     *
+     * @param id equipment id, or null for a newly created item
+     */
+    public void itemChanged(Long id) {
+        Runnable evict = () -> {
+            invalidations.incrementAndGet();
+            if (id != null) {
+                rows.remove(id);
+            }
+            queries.clear();
+        };
+        evict.run();
+        afterCompletion(evict);
+    }
+
+    /**
+     * An item's available quantity changed: drop its row and the
+     * available-only queries, whose membership depends on stock.
+     *
+     * @param id equipment id
+     */
+    public void stockChanged(Long id) {
+        Runnable evict = () -> {
+            invalidations.incrementAndGet();
+            rows.remove(id);
+            queries.keySet().removeIf(CatalogQuery::onlyAvailable);
+        };
+        evict.run();
+        afterCompletion(evict);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public int getQueryCount() {
+        return queries.size();
+    }
+
+    /**
+     * Resolve cached ids to row copies, loading evicted rows in one call.
+     * Returns null when an id no longer resolves, which makes the caller
+     * treat the query as a miss.
+     */
+    private List<Equipment> fromRows(List<Long> ids, Function<Collection<Long>, List<Equipment>> rowsLoader) {
+        Map<Long, Equipment> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Equipment eq = rows.get(id);
+            if (eq == null) {
+                missing.add(id);
+            } else {
+                found.put(id, eq);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long stamp = invalidations.get();
+            for (Equipment eq : rowsLoader.apply(missing)) {
+                remember(eq, stamp);
+                found.put(eq.getId(), eq);
+            }
+        }
+        List<Equipment> out = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Equipment eq = found.get(id);
+            if (eq == null) {
+                return null;
+            }
+            out.add(eq.copy());
+        }
+        return out;
+    }
+
+    private void remember(Equipment eq, long stamp) {
+        Equipment copy = eq.copy();
+        bound(rows, maxItems);
+        rows.put(eq.getId(), copy);
+        // an invalidation that ran while this row was loading may have missed it
+        if (invalidations.get() != stamp) {
+            rows.remove(eq.getId(), copy);
+        }
+    }
+
+    private static <K, V> void bound(Map<K, V> map, int max) {
+        if (map.size() < max) {
+            return;
+        }
+        Iterator<K> it = map.keySet().iterator();
+        while (map.size() >= max && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
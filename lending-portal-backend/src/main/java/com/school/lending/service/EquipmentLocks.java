@@ -0,0 +1,51 @@
+package com.school.lending.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks keyed by equipment id.
+ *
+ * <p>Booking decisions for the same item must not interleave their
+ * check-then-write, but decisions for different items should run in
+ * parallel. A fixed array of locks is shared by all items; two items only
+ * contend when their ids land on the same stripe.
+ */
+@Component
+public class EquipmentLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public EquipmentLocks(@Value("${app.borrow.lock-stripes:64}") int stripes) {
+        this.stripes = new ReentrantLock[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Run an action while holding the lock for an equipment item.
+     *
+     * @param equipmentId equipment id
+     * @param action      work to run under the lock
+     * @return the action's result
+     */
+    public <T> T withLock(Long equipmentId, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(equipmentId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(Long equipmentId) {
+        int h = equipmentId == null ? 0 : Long.hashCode(equipmentId);
+        h ^= (h >>> 16);
+        return stripes[Math.floorMod(h, stripes.length)];
+    }
+}
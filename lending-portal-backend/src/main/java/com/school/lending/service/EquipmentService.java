@@ -1,8 +1,13 @@
 package com.school.lending.service;
 
+import com.school.lending.dto.CursorPage;
+import com.school.lending.dto.PageCursor;
 import com.school.lending.model.Equipment;
 import com.school.lending.repo.EquipmentRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.util.List;
@@ -12,22 +17,62 @@ import java.util.Optional;
 public class EquipmentService {
 
     private final EquipmentRepository equipmentRepository;
+    private final EquipmentCache cache;
+    private final CollectionVersions versions;
+    private final ApplicationEventPublisher events;
 
-    public EquipmentService(EquipmentRepository equipmentRepository) {
+    public EquipmentService(EquipmentRepository equipmentRepository, EquipmentCache cache,
+                            CollectionVersions versions, ApplicationEventPublisher events) {
         this.equipmentRepository = equipmentRepository;
+        this.cache = cache;
+        this.versions = versions;
+        this.events = events;
     }
 
     /**
      * Service for equipment catalog operations: listing, CRUD and stock updates.
+     *
+     * <p>Reads are served from the {@link EquipmentCache}; every write below
+     * invalidates the entries it can affect and bumps the equipment
+     * {@link CollectionVersions version}; stock changes are also published as
+     * {@link EquipmentStockChanged} events.
      */
     public List<Equipment> listAll(String category, boolean onlyAvailable) {
-        if (StringUtils.hasText(category)) {
-            return equipmentRepository.findByCategoryIgnoreCase(category);
-        }
-        if (onlyAvailable) {
-            return equipmentRepository.findByAvailableQuantityGreaterThan(0);
+        String categoryKey = StringUtils.hasText(category) ? Equipment.keyFor(category) : null;
+        return cache.query(new EquipmentCache.CatalogQuery(categoryKey, onlyAvailable, null, 0), () -> {
+            if (categoryKey != null) {
+                return equipmentRepository.findByCategoryKey(categoryKey);
+            }
+            if (onlyAvailable) {
+                return equipmentRepository.findByAvailableQuantityGreaterThan(0);
+            }
+            return equipmentRepository.findAll();
+        }, equipmentRepository::findAllById);
+    }
+
+    /**
+     * Page through equipment ordered by id, optionally filtered by category
+     * and availability.
+     *
+     * @param category      optional category filter (case-insensitive)
+     * @param onlyAvailable if true, only return items with availableQuantity &gt; 0
+     * @param cursor        cursor from the previous page, or null for the first
+     * @param limit         page size
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException when the cursor is malformed
+     */
+    public CursorPage<Equipment> listPage(String category, boolean onlyAvailable, String cursor, int limit) {
+        Long afterId = cursor == null ? null : Long.valueOf(PageCursor.decode(cursor, 1)[0]);
+        String categoryKey = StringUtils.hasText(category) ? Equipment.keyFor(category) : null;
+        List<Equipment> rows = cache.query(
+                new EquipmentCache.CatalogQuery(categoryKey, onlyAvailable, afterId, limit + 1),
+                () -> equipmentRepository.findPage(categoryKey, onlyAvailable, afterId, PageRequest.of(0, limit + 1)),
+                equipmentRepository::findAllById);
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
         }
-        return equipmentRepository.findAll();
+        List<Equipment> page = rows.subList(0, limit);
+        return new CursorPage<>(page, PageCursor.encode(String.valueOf(page.get(limit - 1).getId())));
     }
 
     /**
@@ -42,15 +87,29 @@ public class EquipmentService {
      * Find an equipment item by id.
      *
      * @param id equipment id
-     * @return Optional containing the Equipment if found
+     * @return Optional containing a detached copy of the Equipment if found
      */
     public Optional<Equipment> findOne(Long id) {
-        return equipmentRepository.findById(id);
+        return cache.row(id, equipmentRepository::findById);
+    }
+
+    /**
+     * Find an equipment item and lock its row until the current transaction
+     * ends. Booking decisions on other nodes take the same lock, so a
+     * decision that reads the item's bookings from the database after this
+     * call sees every decision committed before it and blocks the rest.
+     *
+     * @param id equipment id
+     * @return Optional containing the locked Equipment if found
+     */
+    public Optional<Equipment> lockForBooking(Long id) {
+        return equipmentRepository.findByIdForUpdate(id);
     }
 
     /**
      * Persist changes to an equipment record, clamping availableQuantity to
-     * not exceed totalQuantity.
+     * not exceed totalQuantity. Raising totalQuantity publishes
+     * {@link CapacityFreed} for every date.
      *
      * @param equipment equipment entity to save
      * @return saved Equipment
@@ -59,7 +118,16 @@ public class EquipmentService {
         if (equipment.getAvailableQuantity() > equipment.getTotalQuantity()) {
             equipment.setAvailableQuantity(equipment.getTotalQuantity());
         }
-        return equipmentRepository.save(equipment);
+        Integer totalBefore = equipment.getId() == null ? null
+                : findOne(equipment.getId()).map(Equipment::getTotalQuantity).orElse(null);
+        Equipment saved = equipmentRepository.save(equipment);
+        cache.itemChanged(saved.getId());
+        versions.equipmentChanged();
+        events.publishEvent(new EquipmentStockChanged(saved.getId()));
+        if (totalBefore != null && saved.getTotalQuantity() > totalBefore) {
+            events.publishEvent(new CapacityFreed(saved.getId(), null, null));
+        }
+        return saved;
     }
 
     /**
@@ -69,35 +137,48 @@ public class EquipmentService {
      */
     public void deleteById(Long id) {
         equipmentRepository.deleteById(id);
+        cache.itemChanged(id);
+        versions.equipmentChanged();
+        events.publishEvent(new EquipmentStockChanged(id));
     }
 
     /**
-     * Decrease available quantity when items are handed out.
+     * Decrease available quantity when items are handed out. Runs as a single
+     * conditional UPDATE that clamps at zero in the database.
      *
      * @param equipmentId id of equipment
      * @param amount      number of items to hand out
+     * @return true if stock was adjusted, false if the item is missing or
+     * already had none available
      */
-    public void handOut(Long equipmentId, int amount) {
-        equipmentRepository.findById(equipmentId).ifPresent(eq -> {
-            eq.setAvailableQuantity(Math.max(0, eq.getAvailableQuantity() - amount));
-            equipmentRepository.save(eq);
-        });
+    @Transactional
+    public boolean handOut(Long equipmentId, int amount) {
+        boolean changed = equipmentRepository.decrementAvailable(equipmentId, amount) > 0;
+        if (changed) {
+            cache.stockChanged(equipmentId);
+            versions.equipmentChanged();
+            events.publishEvent(new EquipmentStockChanged(equipmentId));
+        }
+        return changed;
     }
 
     /**
-     * Increase available quantity when items are returned, capped at totalQuantity.
+     * Increase available quantity when items are returned, capped at
+     * totalQuantity. Runs as a single conditional UPDATE.
      *
      * @param equipmentId id of equipment
      * @param amount      number of items being returned
+     * @return true if stock was adjusted, false if the item is missing or
+     * already fully stocked
      */
-    public void bringBack(Long equipmentId, int amount) {
-        equipmentRepository.findById(equipmentId).ifPresent(eq -> {
-            int updated = eq.getAvailableQuantity() + amount;
-            if (updated > eq.getTotalQuantity()) {
-                updated = eq.getTotalQuantity();
-            }
-            eq.setAvailableQuantity(updated);
-            equipmentRepository.save(eq);
-        });
+    @Transactional
+    public boolean bringBack(Long equipmentId, int amount) {
+        boolean changed = equipmentRepository.incrementAvailable(equipmentId, amount) > 0;
+        if (changed) {
+            cache.stockChanged(equipmentId);
+            versions.equipmentChanged();
+            events.publishEvent(new EquipmentStockChanged(equipmentId));
+        }
+        return changed;
     }
 }
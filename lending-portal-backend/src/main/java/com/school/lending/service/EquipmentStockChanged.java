@@ -0,0 +1,10 @@
+package com.school.lending.service;
+
+/**
+ * Published by {@link EquipmentService} when an item's available quantity
+ * may have changed. Listeners read the current value themselves.
+ *
+ * @param equipmentId id of the item
+ */
+public record EquipmentStockChanged(Long equipmentId) {
+}
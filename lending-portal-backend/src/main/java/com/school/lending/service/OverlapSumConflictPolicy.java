@@ -0,0 +1,27 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Legacy policy: every overlapping reservation counts in full, even when the
+ * reservations never overlap each other. Conservative but wastes capacity.
+ */
+@Component
+@ConditionalOnProperty(name = "app.borrow.conflict-policy", havingValue = "overlap-sum")
+public class OverlapSumConflictPolicy implements ConflictPolicy {
+
+    @Override
+    public int reservedDuring(List<Reservation> overlapping, LocalDate start, LocalDate end) {
+        return overlapping.stream().mapToInt(Reservation::qty).sum();
+    }
+
+    @Override
+    public int reservedFrom(int peak, int overlapSum) {
+        return overlapSum;
+    }
+}
@@ -0,0 +1,28 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Counts only the maximum quantity reserved on any single day of the range,
+ * so bookings that never overlap each other do not add up (Mon-Tue and
+ * Thu-Fri leave room for a Mon-Fri request as long as each day fits).
+ */
+@Component
+@ConditionalOnProperty(name = "app.borrow.conflict-policy", havingValue = "peak", matchIfMissing = true)
+public class PeakUsageConflictPolicy implements ConflictPolicy {
+
+    @Override
+    public int reservedDuring(List<Reservation> overlapping, LocalDate start, LocalDate end) {
+        return UsageSweep.peak(overlapping, start, end);
+    }
+
+    @Override
+    public int reservedFrom(int peak, int overlapSum) {
+        return peak;
+    }
+}
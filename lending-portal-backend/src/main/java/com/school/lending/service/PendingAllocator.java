@@ -0,0 +1,84 @@
+package com.school.lending.service;
+
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.RequestRef;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Optional background job approving PENDING requests that fit.
+ *
+ * <p>Each run reads the ids of the pending queue with one projection
+ * query, groups them by item and hands every group to
+ * {@link BorrowRequestService#allocatePending}, which loads the group's rows
+ * once and decides them in a single transaction against stock loaded once,
+ * writes them in JDBC batches and leaves an allocation note on every
+ * request it could not grant. Requests are served in the order of the configured
+ * {@link AllocationPolicy}.
+ *
+ * <p>Enabled with {@code app.allocation.enabled=true}; off by default so
+ * staff keep deciding by hand unless they opt in.
+ */
+@Component
+@ConditionalOnProperty(name = "app.allocation.enabled", havingValue = "true")
+public class PendingAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(PendingAllocator.class);
+
+    private final BorrowRequestRepository borrowRepo;
+    private final BorrowRequestService borrowService;
+    private final AllocationPolicy policy;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PendingAllocator(BorrowRequestRepository borrowRepo, BorrowRequestService borrowService,
+                            @Value("${app.allocation.policy:first-come}") String policy) {
+        this.borrowRepo = borrowRepo;
+        this.borrowService = borrowService;
+        this.policy = AllocationPolicy.fromProperty(policy);
+    }
+
+    /**
+     * Allocate the current pending queue. A run that is still going when the
+     * next one is due makes the next one a no-op.
+     *
+     * @return number of requests per outcome
+     */
+    @Scheduled(fixedDelayString = "${app.allocation.interval-ms:300000}",
+            initialDelayString = "${app.allocation.initial-delay-ms:60000}")
+    public Map<DecisionOutcome.Result, Integer> run() {
+        Map<DecisionOutcome.Result, Integer> counts = new EnumMap<>(DecisionOutcome.Result.class);
+        if (!running.compareAndSet(false, true)) {
+            return counts;
+        }
+        try {
+            long started = System.nanoTime();
+            Map<Long, List<Long>> idsByItem = new LinkedHashMap<>();
+            for (RequestRef ref : borrowRepo.findRefsByStatus(BorrowStatus.PENDING)) {
+                idsByItem.computeIfAbsent(ref.equipmentId(), id -> new ArrayList<>()).add(ref.requestId());
+            }
+            idsByItem.forEach((equipmentId, ids) -> {
+                for (DecisionOutcome outcome : borrowService.allocatePending(equipmentId, ids, policy)) {
+                    counts.merge(outcome.result(), 1, Integer::sum);
+                }
+            });
+            log.info("pending allocation ({}): {} items, {} in {} ms", policy, idsByItem.size(), counts,
+                    (System.nanoTime() - started) / 1_000_000);
+            return counts;
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.school.lending.service;
+
+import com.school.lending.model.RefreshToken;
+import com.school.lending.model.UserAccount;
+import com.school.lending.repo.RefreshTokenRepository;
+import com.school.lending.repo.UserAccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Issues and rotates refresh tokens.
+ *
+ * <p>A login starts a token family. Exchanging a refresh token consumes it
+ * and returns its successor, pushing the expiry forward by
+ * {@code app.auth.refresh-ttl-days} (a sliding session). Presenting a token
+ * that was already exchanged means it has been copied, so the whole family is
+ * revoked and the user has to log in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository tokenRepository;
+    private final UserAccountRepository userRepository;
+    private final Duration ttl;
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository tokenRepository,
+                               UserAccountRepository userRepository,
+                               @Value("${app.auth.refresh-ttl-days:14}") long ttlDays) {
+        this.tokenRepository = tokenRepository;
+        this.userRepository = userRepository;
+        this.ttl = Duration.ofDays(ttlDays);
+    }
+
+    /**
+     * Result of a successful exchange: the user and the successor token.
+     */
+    public record Rotation(UserAccount user, String refreshToken) {
+    }
+
+    /**
+     * Start a new token family for a user who just logged in.
+     *
+     * @param user authenticated account
+     * @return raw refresh token to hand to the client
+     */
+    @Transactional
+    public String issue(UserAccount user) {
+        return issueInFamily(user.getId(), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchange a refresh token for its successor.
+     *
+     * @param rawToken refresh token presented by the client
+     * @return the user and the new refresh token, or empty when the token is
+     * unknown, expired, revoked or has already been used
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String rawToken) {
+        if (!StringUtils.hasText(rawToken)) {
+            return Optional.empty();
+        }
+        Optional<RefreshToken> found = tokenRepository.findByTokenHash(hash(rawToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken token = found.get();
+        Instant now = Instant.now();
+        if (token.isRevoked() || token.getExpiresAt().isBefore(now)) {
+            return Optional.empty();
+        }
+        if (token.getUsedAt() != null || tokenRepository.markUsed(token.getId(), now) == 0) {
+            log.warn("refresh token reuse detected for user {}, revoking family {}",
+                    token.getUserId(), token.getFamilyId());
+            tokenRepository.revokeFamily(token.getFamilyId());
+            return Optional.empty();
+        }
+        return userRepository.findById(token.getUserId())
+                .map(user -> new Rotation(user, issueInFamily(user.getId(), token.getFamilyId())));
+    }
+
+    /**
+     * Revoke the family of the given refresh token, e.g. on logout.
+     *
+     * @param rawToken refresh token presented by the client; ignored when
+     *                 blank or unknown
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        if (!StringUtils.hasText(rawToken)) {
+            return;
+        }
+        tokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> tokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    /**
+     * Revoke every refresh token held by a user.
+     *
+     * @param userId user id
+     */
+    @Transactional
+    public void revokeAll(Long userId) {
+        tokenRepository.revokeAllForUser(userId);
+    }
+
+    /**
+     * Remove expired tokens once a night.
+     */
+    @Scheduled(cron = "${app.auth.refresh-purge-cron:0 45 2 * * *}")
+    @Transactional
+    public void purgeExpired() {
+        int removed = tokenRepository.deleteExpired(Instant.now());
+        if (removed > 0) {
+            log.info("purged {} expired refresh tokens", removed);
+        }
+    }
+
+    private String issueInFamily(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tokenRepository.save(new RefreshToken(hash(raw), familyId, userId, Instant.now().plus(ttl)));
+        return raw;
+    }
+
+    static String hash(String raw) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(raw.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowStatus;
+
+/**
+ * Published by {@link BorrowRequestService} when a request is created or
+ * moves to another status.
+ *
+ * @param requestId   id of the request
+ * @param requesterId id of the user who made it
+ * @param equipmentId id of the requested item
+ * @param status      the new status
+ */
+public record RequestStatusChanged(Long requestId, Long requesterId, Long equipmentId, BorrowStatus status) {
+}
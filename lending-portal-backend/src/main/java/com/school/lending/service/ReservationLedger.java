@@ -0,0 +1,162 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Day-bucketed record of the reservations held against one equipment item.
+ *
+ * <p>The ledger covers a fixed window of days starting at {@code origin}.
+ * Two Fenwick trees store, per day, the quantity of reservations starting and
+ * ending on that day. The quantity of all reservations overlapping
+ * {@code [S, E]} is then {@code starts(<= E) - ends(< S)}, because every
+ * reservation that ends before {@code S} also starts before {@code E}.
+ * Reservations reaching outside the window are clamped to its edges, which
+ * keeps the answer exact for any query that lies inside the window.
+ *
+ * <p>Reservations are also kept ordered by start date so the ones overlapping
+ * a range can be listed without scanning the whole ledger: only starts
+ * within the longest booking length before the range can still be running.
+ */
+final class ReservationLedger {
+
+    private final LocalDate origin;
+    private final int size;
+    private final long[] startTree;
+    private final long[] endTree;
+    private final Map<Long, Reservation> byRequest = new HashMap<>();
+    private final NavigableMap<LocalDate, List<Reservation>> byStart = new TreeMap<>();
+    private long longestDays;
+
+    ReservationLedger(LocalDate origin, int size) {
+        this.origin = origin;
+        this.size = size;
+        this.startTree = new long[size + 1];
+        this.endTree = new long[size + 1];
+    }
+
+    /**
+     * Record a reservation. Reservations that cannot overlap any covered
+     * query (entirely before or after the window) are ignored.
+     *
+     * @return true if the reservation was added, false if it was already
+     * present or falls outside the window
+     */
+    synchronized boolean add(Reservation reservation) {
+        if (byRequest.containsKey(reservation.requestId()) || !touchesWindow(reservation)) {
+            return false;
+        }
+        byRequest.put(reservation.requestId(), reservation);
+        byStart.computeIfAbsent(reservation.startDate(), d -> new ArrayList<>()).add(reservation);
+        longestDays = Math.max(longestDays,
+                reservation.endDate().toEpochDay() - reservation.startDate().toEpochDay());
+        apply(reservation, reservation.qty());
+        return true;
+    }
+
+    /**
+     * Remove the reservation recorded for a request.
+     *
+     * @return true if a reservation was removed
+     */
+    synchronized boolean remove(Long requestId) {
+        Reservation removed = byRequest.remove(requestId);
+        if (removed == null) {
+            return false;
+        }
+        List<Reservation> sameStart = byStart.get(removed.startDate());
+        sameStart.remove(removed);
+        if (sameStart.isEmpty()) {
+            byStart.remove(removed.startDate());
+        }
+        apply(removed, -removed.qty());
+        return true;
+    }
+
+    /**
+     * Sum the quantity of every reservation overlapping {@code [start, end]}.
+     * The caller must make sure the range lies inside the ledger window.
+     *
+     * @param ignoreId optional request id whose reservation is left out
+     */
+    synchronized int overlappingQuantity(LocalDate start, LocalDate end, Long ignoreId) {
+        long total = prefix(startTree, offset(end)) - prefix(endTree, offset(start) - 1);
+        if (ignoreId != null) {
+            Reservation ignored = byRequest.get(ignoreId);
+            if (ignored != null && ignored.overlaps(start, end)) {
+                total -= ignored.qty();
+            }
+        }
+        return (int) total;
+    }
+
+    /**
+     * Collect the reservations overlapping {@code [start, end]}.
+     *
+     * @param ignoreId optional request id whose reservation is left out
+     */
+    synchronized List<Reservation> overlapping(LocalDate start, LocalDate end, Long ignoreId) {
+        List<Reservation> out = new ArrayList<>();
+        for (List<Reservation> sameStart : byStart.subMap(start.minusDays(longestDays), true, end, true).values()) {
+            for (Reservation r : sameStart) {
+                if (!r.endDate().isBefore(start) && !r.requestId().equals(ignoreId)) {
+                    out.add(r);
+                }
+            }
+        }
+        return out;
+    }
+
+    synchronized List<Reservation> reservations() {
+        return new ArrayList<>(byRequest.values());
+    }
+
+    synchronized boolean contains(Long requestId) {
+        return byRequest.containsKey(requestId);
+    }
+
+    private boolean touchesWindow(Reservation reservation) {
+        return offset(reservation.endDate()) >= 0 && offset(reservation.startDate()) < size;
+    }
+
+    private void apply(Reservation reservation, int delta) {
+        add(startTree, clamp(offset(reservation.startDate())), delta);
+        add(endTree, clamp(offset(reservation.endDate())), delta);
+    }
+
+    private int offset(LocalDate day) {
+        long diff = day.toEpochDay() - origin.toEpochDay();
+        if (diff < Integer.MIN_VALUE / 2) {
+            return Integer.MIN_VALUE / 2;
+        }
+        if (diff > Integer.MAX_VALUE / 2) {
+            return Integer.MAX_VALUE / 2;
+        }
+        return (int) diff;
+    }
+
+    private int clamp(int offset) {
+        return Math.max(0, Math.min(size - 1, offset));
+    }
+
+    private void add(long[] tree, int offset, long delta) {
+        for (int i = offset + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private long prefix(long[] tree, int offset) {
+        long sum = 0;
+        for (int i = Math.min(offset, size - 1) + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,92 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sweep-line helpers turning a set of reservations into per-day usage.
+ *
+ * <p>Every reservation contributes {@code +qty} on its first day and
+ * {@code -qty} on the day after its last day; walking those deltas in date
+ * order yields the quantity in use on each day. Reservations are clipped to
+ * the range being examined.
+ */
+public final class UsageSweep {
+
+    private UsageSweep() {
+    }
+
+    /**
+     * Maximum quantity in use on any single day of {@code [start, end]}.
+     *
+     * <p>Runs in O(k log k) for k reservations, independent of the length of
+     * the range.
+     *
+     * @param reservations reservations to consider (non-overlapping ones are ignored)
+     * @param start        range start (inclusive)
+     * @param end          range end (inclusive)
+     * @return peak daily usage, 0 when nothing overlaps
+     */
+    public static int peak(List<Reservation> reservations, LocalDate start, LocalDate end) {
+        long first = start.toEpochDay();
+        long last = end.toEpochDay();
+        // Each event packs (day offset, kind, reservation index) into one long so
+        // a primitive sort orders them by day with releases before bookings.
+        long[] events = new long[reservations.size() * 2];
+        int count = 0;
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation r = reservations.get(i);
+            long from = Math.max(first, r.startDate().toEpochDay());
+            long to = Math.min(last, r.endDate().toEpochDay());
+            if (from > to) {
+                continue;
+            }
+            events[count++] = ((from - first) << 32) | (1L << 31) | i;
+            events[count++] = ((to - first + 1) << 32) | i;
+        }
+        Arrays.sort(events, 0, count);
+        int current = 0;
+        int peak = 0;
+        for (int e = 0; e < count; e++) {
+            long event = events[e];
+            int qty = reservations.get((int) (event & 0x7fffffffL)).qty();
+            if ((event & (1L << 31)) != 0) {
+                current += qty;
+                peak = Math.max(peak, current);
+            } else {
+                current -= qty;
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Quantity in use on each day of {@code [start, end]}.
+     *
+     * @param reservations reservations to consider (non-overlapping ones are ignored)
+     * @param start        range start (inclusive)
+     * @param end          range end (inclusive)
+     * @return array with one entry per day, index 0 being {@code start}
+     */
+    public static int[] dailyUsage(List<Reservation> reservations, LocalDate start, LocalDate end) {
+        long first = start.toEpochDay();
+        int days = (int) (end.toEpochDay() - first + 1);
+        int[] usage = new int[Math.max(days, 0) + 1];
+        for (Reservation r : reservations) {
+            long from = Math.max(first, r.startDate().toEpochDay());
+            long to = Math.min(end.toEpochDay(), r.endDate().toEpochDay());
+            if (from > to) {
+                continue;
+            }
+            usage[(int) (from - first)] += r.qty();
+            usage[(int) (to - first + 1)] -= r.qty();
+        }
+        for (int d = 1; d < usage.length; d++) {
+            usage[d] += usage[d - 1];
+        }
+        return Arrays.copyOf(usage, Math.max(days, 0));
+    }
+}
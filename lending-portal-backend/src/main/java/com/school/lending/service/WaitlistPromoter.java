@@ -0,0 +1,50 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+
+/**
+ * Promotes waitlisted requests when stock frees up.
+ *
+ * <p>Every {@link CapacityFreed} event re-checks, after the freeing change
+ * has committed, only the waitlisted requests of that item overlapping the
+ * freed days. Promoted requests become PENDING or, with
+ * {@code app.waitlist.promote-to=approved}, APPROVED.
+ */
+@Component
+public class WaitlistPromoter {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistPromoter.class);
+
+    private final BorrowRequestService borrowService;
+    private final BorrowStatus target;
+
+    public WaitlistPromoter(BorrowRequestService borrowService,
+                            @Value("${app.waitlist.promote-to:pending}") String promoteTo) {
+        this.borrowService = borrowService;
+        this.target = BorrowStatus.valueOf(promoteTo.trim().toUpperCase(Locale.ROOT));
+        if (target != BorrowStatus.PENDING && target != BorrowStatus.APPROVED) {
+            throw new IllegalArgumentException("app.waitlist.promote-to must be pending or approved");
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCapacityFreed(CapacityFreed event) {
+        try {
+            int promoted = borrowService.promoteWaitlisted(event.equipmentId(), event.from(), event.to(), target).size();
+            if (promoted > 0) {
+                log.info("promoted {} waitlisted request(s) for equipment {} to {}",
+                        promoted, event.equipmentId(), target);
+            }
+        } catch (RuntimeException ex) {
+            // the change that freed the stock has committed; the next one retries
+            log.warn("waitlist promotion for equipment {} failed", event.equipmentId(), ex);
+        }
+    }
+}
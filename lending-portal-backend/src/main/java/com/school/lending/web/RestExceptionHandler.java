@@ -1,5 +1,6 @@
 package com.school.lending.web;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -35,7 +36,18 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         Map<String, Object> body = new HashMap<>();
         body.put("status", ex.getStatusCode().value());
         body.put("message", ex.getReason());
-        return new ResponseEntity<>(body, ex.getStatusCode());
+        if (ex instanceof ScheduleConflictException conflict && conflict.getSuggestion() != null) {
+            body.put("suggestion", conflict.getSuggestion());
+        }
+        return new ResponseEntity<>(body, ex.getHeaders(), ex.getStatusCode());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLock(OptimisticLockingFailureException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("message", "record was changed by someone else, reload and try again");
+        return new ResponseEntity<>(body, HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(Exception.class)
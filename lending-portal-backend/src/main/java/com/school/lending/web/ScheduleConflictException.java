@@ -0,0 +1,27 @@
+package com.school.lending.web;
+
+import com.school.lending.dto.Slot;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 409 raised when a booking does not fit; carries the earliest slot of the
+ * same length that would, so the client can offer it instead of retrying
+ * dates by hand.
+ */
+public class ScheduleConflictException extends ResponseStatusException {
+
+    private final transient Slot suggestion;
+
+    /**
+     * @param suggestion earliest slot that fits, or null when none was found
+     */
+    public ScheduleConflictException(Slot suggestion) {
+        super(HttpStatus.CONFLICT, "schedule clash / out of stock");
+        this.suggestion = suggestion;
+    }
+
+    public Slot getSuggestion() {
+        return suggestion;
+    }
+}
@@ -0,0 +1,269 @@
+package com.school.lending.web;
+
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import com.school.lending.repo.EquipmentRepository;
+import com.school.lending.service.EquipmentStockChanged;
+import com.school.lending.service.RequestStatusChanged;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fan-out of live changes to Server-Sent Events connections.
+ *
+ * <p>Every connection receives {@code stock} events (an item's current
+ * available quantity). {@code request} events (a request's new status) go to
+ * the requester and to staff/admin connections only.
+ *
+ * <p>Events are queued per connection and written by a small sender pool, so
+ * a slow client never blocks the thread that made the change. Queued events
+ * with the same key (the same item or request) are coalesced, latest wins;
+ * a connection whose queue still grows past {@code app.stream.max-pending}
+ * is closed, and the client is expected to reconnect and reload. A comment
+ * heartbeat keeps idle connections and proxies alive. The number of open
+ * connections per node is capped; beyond it clients get 503 with Retry-After.
+ */
+@Component
+public class StreamHub {
+
+    private final EquipmentRepository equipmentRepository;
+    private final int maxConnections;
+    private final int maxPending;
+    private final long timeoutMs;
+    private final ExecutorService sender;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public StreamHub(EquipmentRepository equipmentRepository,
+                     @Value("${app.stream.max-connections:500}") int maxConnections,
+                     @Value("${app.stream.max-pending:64}") int maxPending,
+                     @Value("${app.stream.timeout-ms:1800000}") long timeoutMs,
+                     @Value("${app.stream.sender-threads:2}") int senderThreads) {
+        this.equipmentRepository = equipmentRepository;
+        this.maxConnections = maxConnections;
+        this.maxPending = maxPending;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger n = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "sse-sender-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Open a stream for a user.
+     *
+     * @param user authenticated caller
+     * @return the emitter to return from the controller
+     * @throws StreamBusyException when this node already holds the maximum
+     *                             number of connections
+     */
+    public SseEmitter open(UserAccount user) {
+        if (open.incrementAndGet() > maxConnections) {
+            open.decrementAndGet();
+            throw new StreamBusyException();
+        }
+        SseEmitter emitter = newEmitter();
+        boolean staff = user.getRole() == UserRole.STAFF || user.getRole() == UserRole.ADMIN;
+        Connection conn = new Connection(emitter, user.getId(), staff);
+        connections.add(conn);
+        emitter.onCompletion(conn::close);
+        emitter.onTimeout(conn::close);
+        emitter.onError(ex -> conn.close());
+        conn.offer("hello", () -> SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+
+    /**
+     * Push an item's available quantity once the change has committed.
+     *
+     * <p>The quantity is read from the database rather than through
+     * {@code EquipmentService.findOne}: its cache is only evicted in
+     * {@code afterCompletion}, after every after-commit listener has run, so
+     * a cached row could still hold the value from before the change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(EquipmentStockChanged event) {
+        Long equipmentId = event.equipmentId();
+        try {
+            // read the committed value off the caller's thread
+            sender.execute(() -> equipmentRepository.findAvailableQuantity(equipmentId).ifPresent(available -> {
+                Map<String, Object> data = new LinkedHashMap<>();
+                data.put("equipmentId", equipmentId);
+                data.put("availableQuantity", available);
+                broadcast("stock:" + equipmentId, () -> SseEmitter.event().name("stock").data(data), c -> true);
+            }));
+        } catch (RejectedExecutionException ignored) {
+            // shutting down
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRequestStatusChanged(RequestStatusChanged event) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("requestId", event.requestId());
+        data.put("equipmentId", event.equipmentId());
+        data.put("status", event.status().name());
+        broadcast("request:" + event.requestId(), () -> SseEmitter.event().name("request").data(data),
+                c -> c.staff || Objects.equals(c.userId, event.requesterId()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        broadcast("heartbeat", () -> SseEmitter.event().comment("hb"), c -> true);
+    }
+
+    public int getConnectionCount() {
+        return open.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Connection conn : connections) {
+            conn.emitter.complete();
+        }
+        sender.shutdownNow();
+    }
+
+    /**
+     * Create the emitter of a new connection.
+     */
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void broadcast(String key, Supplier<SseEmitter.SseEventBuilder> event, Predicate<Connection> audience) {
+        for (Connection conn : connections) {
+            if (audience.test(conn)) {
+                conn.offer(key, event);
+            }
+        }
+    }
+
+    /**
+     * One client connection and its queue of unsent events.
+     */
+    private final class Connection {
+
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final boolean staff;
+        // builders are single-use, so each connection builds its own
+        private final Map<String, Supplier<SseEmitter.SseEventBuilder>> pending = new LinkedHashMap<>();
+        private boolean draining;
+        private boolean closed;
+
+        Connection(SseEmitter emitter, Long userId, boolean staff) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.staff = staff;
+        }
+
+        void offer(String key, Supplier<SseEmitter.SseEventBuilder> event) {
+            boolean overflow;
+            synchronized (pending) {
+                if (closed) {
+                    return;
+                }
+                pending.remove(key);
+                pending.put(key, event);
+                overflow = pending.size() > maxPending;
+                if (!overflow && !draining) {
+                    draining = true;
+                    try {
+                        sender.execute(this::drain);
+                    } catch (RejectedExecutionException ex) {
+                        draining = false;
+                    }
+                }
+            }
+            if (overflow) {
+                dropped.incrementAndGet();
+                emitter.complete();
+                close();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                List<Supplier<SseEmitter.SseEventBuilder>> batch;
+                synchronized (pending) {
+                    if (pending.isEmpty() || closed) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                }
+                try {
+                    for (Supplier<SseEmitter.SseEventBuilder> event : batch) {
+                        emitter.send(event.get());
+                    }
+                } catch (IOException | IllegalStateException ex) {
+                    close();
+                    emitter.completeWithError(ex);
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            synchronized (pending) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            if (connections.remove(this)) {
+                open.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Too many open streams on this node; the client should retry shortly.
+     */
+    static class StreamBusyException extends ResponseStatusException {
+
+        StreamBusyException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "too many live connections, try again shortly");
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, "5");
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+-- Baseline schema. Until now Hibernate created the tables itself
+-- (ddl-auto=update); from here on every schema change is a new V<n>__*.sql
+-- file in this directory and Hibernate only uses what is already there.
+
+CREATE TABLE users (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username     VARCHAR(255) NOT NULL,
+    password     VARCHAR(255),
+    role         VARCHAR(32),
+    display_name VARCHAR(255)
+);
+
+CREATE TABLE equipment (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    item_name          VARCHAR(255),
+    category           VARCHAR(255),
+    category_key       VARCHAR(255),
+    condition_note     VARCHAR(255),
+    total_quantity     INTEGER NOT NULL,
+    available_quantity INTEGER NOT NULL,
+    version            BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE borrow_requests (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id       BIGINT REFERENCES users (id),
+    equipment_id  BIGINT REFERENCES equipment (id),
+    start_date    DATE,
+    end_date      DATE,
+    qty           INTEGER NOT NULL,
+    status        VARCHAR(32),
+    decision_date TIMESTAMP WITH TIME ZONE,
+    decision_note VARCHAR(255),
+    created_at    TIMESTAMP WITH TIME ZONE,
+    version       BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE refresh_tokens (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token_hash VARCHAR(64) NOT NULL,
+    family_id  VARCHAR(36) NOT NULL,
+    user_id    BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE,
+    expires_at TIMESTAMP WITH TIME ZONE,
+    used_at    TIMESTAMP WITH TIME ZONE,
+    revoked    BOOLEAN NOT NULL
+);
+
+-- Login and every non-claims-trust request look users up by name.
+CREATE UNIQUE INDEX ux_users_username ON users (username);
+
+-- Conflict checks: one item, a few statuses, a date range.
+CREATE INDEX ix_borrow_equipment_status_dates ON borrow_requests (equipment_id, status, start_date, end_date);
+-- "My requests", newest first (keyset pagination on created_at, id).
+CREATE INDEX ix_borrow_user_created ON borrow_requests (user_id, created_at, id);
+-- Staff queue by status, newest first.
+CREATE INDEX ix_borrow_status_created ON borrow_requests (status, created_at, id);
+-- Unfiltered list, newest first.
+CREATE INDEX ix_borrow_created ON borrow_requests (created_at, id);
+-- Availability index rebuild: active bookings overlapping a window.
+CREATE INDEX ix_borrow_status_end_start ON borrow_requests (status, end_date, start_date);
+
+-- Case-insensitive category filter on the catalogue.
+CREATE INDEX ix_equipment_category_key ON equipment (category_key, id);
+
+CREATE UNIQUE INDEX ux_refresh_token_hash ON refresh_tokens (token_hash);
+CREATE INDEX ix_refresh_family ON refresh_tokens (family_id);
+CREATE INDEX ix_refresh_user ON refresh_tokens (user_id);
+CREATE INDEX ix_refresh_expires ON refresh_tokens (expires_at);
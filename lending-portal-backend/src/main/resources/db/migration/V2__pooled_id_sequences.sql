@@ -0,0 +1,7 @@
+-- Ids for users, equipment and borrow requests come from sequences that hand
+-- out blocks of 50 (Hibernate's pooled optimizer), so inserts no longer need
+-- a round trip each to learn the generated key and can be JDBC-batched.
+-- INCREMENT BY must match allocationSize on the entities.
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE equipment_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE borrow_requests_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,3 @@
+-- Why the automatic allocator left a PENDING request waiting, shown to the
+-- requester next to the request. Cleared once the request is decided.
+ALTER TABLE borrow_requests ADD COLUMN allocation_note VARCHAR(255);
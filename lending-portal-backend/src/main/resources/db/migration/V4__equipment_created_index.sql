@@ -0,0 +1,2 @@
+-- One item's requests, newest first (keyset pagination on created_at, id).
+CREATE INDEX ix_borrow_equipment_created ON borrow_requests (equipment_id, created_at, id);
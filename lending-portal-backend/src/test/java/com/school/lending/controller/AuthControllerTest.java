@@ -2,12 +2,20 @@ package com.school.lending.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.school.lending.dto.LoginRequest;
+import com.school.lending.dto.RefreshRequest;
 import com.school.lending.dto.SignupRequest;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
+import com.school.lending.repo.UserAccountRepository;
+import com.school.lending.security.JwtAuthFilter;
+import com.school.lending.security.JwtUtil;
+import com.school.lending.security.RevocationList;
+import com.school.lending.security.TokenGenerations;
 import com.school.lending.service.AuthService;
+import com.school.lending.service.RefreshTokenService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
@@ -16,6 +24,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -23,6 +32,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(AuthController.class)
+@AutoConfigureMockMvc(addFilters = false)
 class AuthControllerTest {
 
     @Autowired
@@ -31,6 +41,21 @@ class AuthControllerTest {
     @MockBean
     AuthService authService;
 
+    @MockBean
+    RefreshTokenService refreshTokenService;
+
+    @MockBean
+    JwtUtil jwtUtil;
+
+    @MockBean
+    UserAccountRepository userRepository;
+
+    @MockBean
+    TokenGenerations tokenGenerations;
+
+    @MockBean
+    RevocationList revocationList;
+
     @Autowired
     ObjectMapper mapper;
 
@@ -40,6 +65,7 @@ class AuthControllerTest {
         u.setId(1L);
         when(authService.login("alice", "secret")).thenReturn(Optional.of(u));
         when(authService.issueToken(u)).thenReturn("tok-abc");
+        when(refreshTokenService.issue(u)).thenReturn("ref-abc");
 
         LoginRequest req = new LoginRequest();
         req.username = "alice";
@@ -50,6 +76,7 @@ class AuthControllerTest {
                         .content(mapper.writeValueAsString(req)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").value("tok-abc"))
+                .andExpect(jsonPath("$.refreshToken").value("ref-abc"))
                 .andExpect(jsonPath("$.username").value("alice"));
     }
 
@@ -86,11 +113,67 @@ class AuthControllerTest {
     void whoAmI_success() throws Exception {
         UserAccount u = new UserAccount("carol", "x", UserRole.STAFF, "Carol");
         u.setId(2L);
-        when(authService.findUserByToken("t1")).thenReturn(Optional.of(u));
 
-        mvc.perform(get("/api/auth/me").header("X-Auth-Token", "t1"))
+        mvc.perform(get("/api/auth/me").header("X-Auth-Token", "t1")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.username").value("carol"))
                 .andExpect(jsonPath("$.role").value("STAFF"));
     }
+
+    @Test
+    void refresh_rotatesTokens() throws Exception {
+        UserAccount u = new UserAccount("alice", "pw", UserRole.STUDENT, "Alice");
+        u.setId(1L);
+        when(refreshTokenService.rotate("ref-old"))
+                .thenReturn(Optional.of(new RefreshTokenService.Rotation(u, "ref-new")));
+        when(authService.issueToken(u)).thenReturn("tok-new");
+
+        RefreshRequest req = new RefreshRequest();
+        req.refreshToken = "ref-old";
+
+        mvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("tok-new"))
+                .andExpect(jsonPath("$.refreshToken").value("ref-new"))
+                .andExpect(jsonPath("$.username").value("alice"));
+    }
+
+    @Test
+    void refresh_rejectedToken_returns401() throws Exception {
+        when(refreshTokenService.rotate(any())).thenReturn(Optional.empty());
+
+        RefreshRequest req = new RefreshRequest();
+        req.refreshToken = "ref-used";
+
+        mvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void logout_revokesPresentedTokens() throws Exception {
+        RefreshRequest req = new RefreshRequest();
+        req.refreshToken = "ref-abc";
+
+        mvc.perform(post("/api/auth/logout")
+                        .header("X-Auth-Token", "tok-abc")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout("tok-abc", "ref-abc");
+    }
+
+    @Test
+    void logout_revokesBearerToken() throws Exception {
+        mvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer tok-bearer"))
+                .andExpect(status().isNoContent());
+
+        verify(authService).logout("tok-bearer", null);
+    }
 }
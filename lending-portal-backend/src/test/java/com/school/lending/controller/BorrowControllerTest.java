@@ -2,44 +2,80 @@ package com.school.lending.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.school.lending.dto.BorrowCreateRequest;
+import com.school.lending.dto.CursorPage;
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.dto.PageCursor;
+import com.school.lending.dto.RequestFilter;
+import com.school.lending.dto.Slot;
+import com.school.lending.model.BorrowStatus;
 import com.school.lending.model.BorrowRequest;
 import com.school.lending.model.Equipment;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
-import com.school.lending.service.AuthService;
+import com.school.lending.repo.UserAccountRepository;
+import com.school.lending.security.JwtAuthFilter;
+import com.school.lending.security.JwtUtil;
+import com.school.lending.security.RevocationList;
+import com.school.lending.security.TokenGenerations;
+import com.school.lending.service.AvailabilityCalendar;
 import com.school.lending.service.BorrowRequestService;
+import com.school.lending.service.CollectionVersions;
 import com.school.lending.service.EquipmentService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(BorrowController.class)
+@AutoConfigureMockMvc(addFilters = false)
 class BorrowControllerTest {
 
     @Autowired
     MockMvc mvc;
 
-    @MockBean
-    AuthService authService;
-
     @MockBean
     BorrowRequestService borrowService;
 
     @MockBean
     EquipmentService equipmentService;
 
+    @MockBean
+    CollectionVersions versions;
+
+    @MockBean
+    AvailabilityCalendar availabilityCalendar;
+
+    @MockBean
+    JwtUtil jwtUtil;
+
+    @MockBean
+    UserAccountRepository userRepository;
+
+    @MockBean
+    TokenGenerations tokenGenerations;
+
+    @MockBean
+    RevocationList revocationList;
+
     @Autowired
     ObjectMapper mapper;
 
@@ -47,7 +83,6 @@ class BorrowControllerTest {
     void newRequest_success() throws Exception {
         UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
         u.setId(3L);
-        when(authService.findUserByToken("t")).thenReturn(Optional.of(u));
 
         Equipment eq = new Equipment("cam", "photo", "ok", 5,5);
         eq.setId(20L);
@@ -56,7 +91,7 @@ class BorrowControllerTest {
 
         BorrowRequest created = new BorrowRequest(u, eq, LocalDate.parse("2025-11-10"), LocalDate.parse("2025-11-11"), 1);
         created.setId(99L);
-        when(borrowService.createRequest(any(), any(), any(), any(), any())).thenReturn(created);
+        when(borrowService.createRequest(any(), any(), any(), any(), anyInt())).thenReturn(created);
 
         BorrowCreateRequest req = new BorrowCreateRequest();
         req.equipmentId = 20L;
@@ -64,7 +99,7 @@ class BorrowControllerTest {
         req.endDate = "2025-11-11";
         req.qty = 1;
 
-        mvc.perform(post("/api/requests").header("X-Auth-Token", "t")
+        mvc.perform(post("/api/requests").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(req)))
                 .andExpect(status().isCreated())
@@ -75,7 +110,6 @@ class BorrowControllerTest {
     void newRequest_missingEquipment_returns404() throws Exception {
         UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
         u.setId(3L);
-        when(authService.findUserByToken("t")).thenReturn(Optional.of(u));
         when(equipmentService.findOne(1L)).thenReturn(Optional.empty());
 
         BorrowCreateRequest req = new BorrowCreateRequest();
@@ -84,9 +118,162 @@ class BorrowControllerTest {
         req.endDate = "2025-01-02";
         req.qty = 1;
 
-        mvc.perform(post("/api/requests").header("X-Auth-Token", "t")
+        mvc.perform(post("/api/requests").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(req)))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void newRequest_conflict_suggestsEarliestFittingSlot() throws Exception {
+        UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        u.setId(3L);
+        Equipment eq = new Equipment("cam", "photo", "ok", 5, 5);
+        eq.setId(20L);
+        LocalDate start = LocalDate.now().plusDays(10);
+        when(equipmentService.findOne(20L)).thenReturn(Optional.of(eq));
+        when(borrowService.isConflicting(20L, start, start.plusDays(1), 2, null)).thenReturn(true);
+        when(availabilityCalendar.nextSlots(20L, 2, 2, start, 1))
+                .thenReturn(Optional.of(List.of(new Slot(start.plusDays(3), start.plusDays(4)))));
+
+        BorrowCreateRequest req = new BorrowCreateRequest();
+        req.equipmentId = 20L;
+        req.startDate = start.toString();
+        req.endDate = start.plusDays(1).toString();
+        req.qty = 2;
+
+        mvc.perform(post("/api/requests").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value("schedule clash / out of stock"))
+                .andExpect(jsonPath("$.suggestion.startDate").value(start.plusDays(3).toString()))
+                .andExpect(jsonPath("$.suggestion.endDate").value(start.plusDays(4).toString()));
+    }
+
+    @Test
+    void newRequest_conflict_withWaitlist_queuesRequest() throws Exception {
+        UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        u.setId(3L);
+        Equipment eq = new Equipment("cam", "photo", "ok", 5, 5);
+        eq.setId(20L);
+        LocalDate start = LocalDate.parse("2025-11-10");
+        when(equipmentService.findOne(20L)).thenReturn(Optional.of(eq));
+        when(borrowService.isConflicting(20L, start, start.plusDays(1), 2, null)).thenReturn(true);
+        BorrowRequest queued = new BorrowRequest(u, eq, start, start.plusDays(1), 2);
+        queued.setId(77L);
+        queued.setStatus(BorrowStatus.WAITLISTED);
+        when(borrowService.waitlistRequest(any(), any(), eq(start), eq(start.plusDays(1)), eq(2))).thenReturn(queued);
+
+        BorrowCreateRequest req = new BorrowCreateRequest();
+        req.equipmentId = 20L;
+        req.startDate = "2025-11-10";
+        req.endDate = "2025-11-11";
+        req.qty = 2;
+        req.waitlist = true;
+
+        mvc.perform(post("/api/requests").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("WAITLISTED"));
+    }
+
+    @Test
+    void approve_forbiddenForStudent() throws Exception {
+        UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        u.setId(3L);
+
+        mvc.perform(post("/api/requests/5/approve").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.message").value("students can't approve"));
+        verifyNoInteractions(borrowService);
+    }
+
+    @Test
+    void decideBatch_forbiddenForStudent_andRejectsIncompleteEntries() throws Exception {
+        UserAccount stu = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        stu.setId(3L);
+        UserAccount staff = new UserAccount("st", "p", UserRole.STAFF, "Staff");
+        staff.setId(4L);
+
+        mvc.perform(post("/api/requests/decisions").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, stu)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"action\":\"APPROVE\"}]"))
+                .andExpect(status().isForbidden());
+        mvc.perform(post("/api/requests/decisions").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, staff)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1}]"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(borrowService);
+    }
+
+    @Test
+    void decideBatch_returnsOutcomePerId() throws Exception {
+        UserAccount staff = new UserAccount("st", "p", UserRole.STAFF, "Staff");
+        staff.setId(4L);
+        when(borrowService.decideBatch(any())).thenReturn(List.of(
+                new DecisionOutcome(1L, DecisionOutcome.Result.APPLIED, BorrowStatus.APPROVED),
+                new DecisionOutcome(2L, DecisionOutcome.Result.NO_CAPACITY, BorrowStatus.PENDING)));
+
+        mvc.perform(post("/api/requests/decisions").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, staff)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":1,\"action\":\"APPROVE\"},{\"id\":2,\"action\":\"APPROVE\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].result").value("APPLIED"))
+                .andExpect(jsonPath("$[1].result").value("NO_CAPACITY"))
+                .andExpect(jsonPath("$[1].status").value("PENDING"));
+    }
+
+    @Test
+    void browse_student_isLimitedToOwnRequests_andReturnsNextCursor() throws Exception {
+        UserAccount u = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        u.setId(3L);
+        Equipment eq = new Equipment("cam", "photo", "ok", 5, 5);
+        eq.setId(20L);
+        BorrowRequest r = new BorrowRequest(u, eq, LocalDate.parse("2025-11-10"), LocalDate.parse("2025-11-11"), 1);
+        r.setId(7L);
+        RequestFilter expected = new RequestFilter(3L, BorrowStatus.PENDING, null, null, null);
+        when(borrowService.findPage(eq(expected), eq(null), eq(10)))
+                .thenReturn(new CursorPage<>(List.of(r), "next-1"));
+
+        mvc.perform(get("/api/requests").param("status", "PENDING").param("limit", "10")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, "next-1"))
+                .andExpect(jsonPath("[0].id").value(7));
+    }
+
+    @Test
+    void browse_sameEtagForAnotherUser_isNotReused() throws Exception {
+        UserAccount stu = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
+        stu.setId(3L);
+        UserAccount other = new UserAccount("oth", "p", UserRole.STUDENT, "Oth");
+        other.setId(4L);
+        when(borrowService.findPage(any(), eq(null), eq(PageCursor.DEFAULT_LIMIT)))
+                .thenReturn(new CursorPage<>(List.of(), null));
+
+        String etag = mvc.perform(get("/api/requests").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, stu))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/requests").header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, stu))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/requests").header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, other))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void browse_badCursor_returns400() throws Exception {
+        UserAccount staff = new UserAccount("st", "p", UserRole.STAFF, "Staff");
+        staff.setId(4L);
+        when(borrowService.findPage(any(), eq("junk"), eq(PageCursor.DEFAULT_LIMIT)))
+                .thenThrow(new IllegalArgumentException("bad cursor"));
+
+        mvc.perform(get("/api/requests").param("cursor", "junk")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, staff))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -1,30 +1,51 @@
 package com.school.lending.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.lending.dto.CursorPage;
+import com.school.lending.dto.DailyAvailability;
 import com.school.lending.dto.EquipmentInput;
+import com.school.lending.dto.PageCursor;
+import com.school.lending.dto.WindowAvailability;
 import com.school.lending.model.Equipment;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
-import com.school.lending.service.AuthService;
+import com.school.lending.repo.UserAccountRepository;
+import com.school.lending.security.JwtAuthFilter;
+import com.school.lending.security.JwtUtil;
+import com.school.lending.security.RevocationList;
+import com.school.lending.security.TokenGenerations;
+import com.school.lending.service.AvailabilityCalendar;
+import com.school.lending.service.CatalogSnapshot;
+import com.school.lending.service.CollectionVersions;
 import com.school.lending.service.EquipmentService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(EquipmentController.class)
+@AutoConfigureMockMvc(addFilters = false)
 class EquipmentControllerTest {
 
     @Autowired
@@ -34,28 +55,143 @@ class EquipmentControllerTest {
     EquipmentService equipmentService;
 
     @MockBean
-    AuthService authService;
+    CollectionVersions versions;
+
+    @MockBean
+    CatalogSnapshot catalogSnapshot;
+
+    @MockBean
+    AvailabilityCalendar availabilityCalendar;
+
+    @MockBean
+    JwtUtil jwtUtil;
+
+    @MockBean
+    UserAccountRepository userRepository;
+
+    @MockBean
+    TokenGenerations tokenGenerations;
+
+    @MockBean
+    RevocationList revocationList;
 
     @Autowired
     ObjectMapper mapper;
 
+    private CatalogSnapshot.View viewOf(Equipment... items) throws Exception {
+        return new CatalogSnapshot.View(mapper.writeValueAsBytes(List.of(items)), null, null);
+    }
+
     @Test
     void list_requiresAuthentication() throws Exception {
         UserAccount u = new UserAccount("sam", "p", UserRole.STUDENT, "Sam");
         u.setId(10L);
-        when(authService.findUserByToken("t")).thenReturn(Optional.of(u));
-        when(equipmentService.listAll(null, false)).thenReturn(List.of(new Equipment("cam", "photo", "ok", 2,2)));
+        when(catalogSnapshot.view(null, false, null, PageCursor.DEFAULT_LIMIT))
+                .thenReturn(viewOf(new Equipment("cam", "photo", "ok", 2, 2)));
 
-        mvc.perform(get("/api/equipment").header("X-Auth-Token", "t"))
+        mvc.perform(get("/api/equipment").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("[0].itemName").value("cam"));
     }
 
+    @Test
+    void list_servesGzipBytes_whenAccepted() throws Exception {
+        UserAccount u = new UserAccount("sam", "p", UserRole.STUDENT, "Sam");
+        u.setId(10L);
+        byte[] json = "[]".getBytes(StandardCharsets.UTF_8);
+        byte[] gz = {31, -117, 8, 0};
+        when(catalogSnapshot.view(null, false, null, PageCursor.DEFAULT_LIMIT))
+                .thenReturn(new CatalogSnapshot.View(json, gz, "next"));
+
+        mvc.perform(get("/api/equipment").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, "next"))
+                .andExpect(content().bytes(gz));
+        mvc.perform(get("/api/equipment").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(json));
+    }
+
+    @Test
+    void list_unchangedCatalog_returns304WithoutQuerying() throws Exception {
+        UserAccount u = new UserAccount("sam", "p", UserRole.STUDENT, "Sam");
+        u.setId(10L);
+        when(versions.equipment()).thenReturn(7L);
+        when(catalogSnapshot.view(null, false, null, PageCursor.DEFAULT_LIMIT))
+                .thenReturn(viewOf(new Equipment("cam", "photo", "ok", 2, 2)));
+
+        String etag = mvc.perform(get("/api/equipment").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/equipment").header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isNotModified());
+        verify(catalogSnapshot, times(1)).view(null, false, null, PageCursor.DEFAULT_LIMIT);
+
+        when(versions.equipment()).thenReturn(8L);
+        mvc.perform(get("/api/equipment").header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void availability_returnsDailySeries_and400ForBadRange() throws Exception {
+        UserAccount u = new UserAccount("sam", "p", UserRole.STUDENT, "Sam");
+        u.setId(10L);
+        LocalDate day = LocalDate.parse("2025-05-01");
+        when(availabilityCalendar.forItem(4L, day, day.plusDays(1))).thenReturn(Optional.of(
+                new DailyAvailability(4L, day, day.plusDays(1), 3,
+                        List.of(new DailyAvailability.Day(day, 3), new DailyAvailability.Day(day.plusDays(1), 1)))));
+        when(availabilityCalendar.forItem(4L, day, day.minusDays(1)))
+                .thenThrow(new IllegalArgumentException("from must be on or before to"));
+
+        mvc.perform(get("/api/equipment/4/availability").param("from", "2025-05-01").param("to", "2025-05-02")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.days[1].date").value("2025-05-02"))
+                .andExpect(jsonPath("$.days[1].free").value(1));
+        mvc.perform(get("/api/equipment/4/availability").param("from", "2025-05-01").param("to", "2025-04-30")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listForWindow_returnsFreeQuantityPerItem() throws Exception {
+        UserAccount u = new UserAccount("sam", "p", UserRole.STUDENT, "Sam");
+        u.setId(10L);
+        Equipment cam = new Equipment("cam", "photo", "ok", 5, 5);
+        cam.setId(4L);
+        LocalDate from = LocalDate.parse("2025-05-01");
+        LocalDate to = LocalDate.parse("2025-05-03");
+        when(equipmentService.listPage(null, false, null, PageCursor.DEFAULT_LIMIT))
+                .thenReturn(new CursorPage<>(List.of(cam), null));
+        when(availabilityCalendar.forWindow(List.of(cam), from, to))
+                .thenReturn(List.of(new WindowAvailability(cam, 2)));
+
+        mvc.perform(get("/api/equipment").param("from", "2025-05-01").param("to", "2025-05-03")
+                        .requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, u))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[0].itemName").value("cam"))
+                .andExpect(jsonPath("$[0].freeQuantity").value(2));
+        verifyNoInteractions(catalogSnapshot);
+    }
+
+    @Test
+    void list_withoutUser_returns401() throws Exception {
+        mvc.perform(get("/api/equipment"))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void create_adminAllowed() throws Exception {
         UserAccount admin = new UserAccount("admin", "p", UserRole.ADMIN, "Admin");
         admin.setId(5L);
-        when(authService.findUserByToken("t1")).thenReturn(Optional.of(admin));
 
         EquipmentInput in = new EquipmentInput();
         in.itemName = "proj";
@@ -67,7 +203,7 @@ class EquipmentControllerTest {
         saved.setId(11L);
         when(equipmentService.saveThing(any())).thenReturn(saved);
 
-        mvc.perform(post("/api/equipment").header("X-Auth-Token", "t1")
+        mvc.perform(post("/api/equipment").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, admin)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(in)))
                 .andExpect(status().isOk())
@@ -79,12 +215,11 @@ class EquipmentControllerTest {
     void create_forbiddenForStudent() throws Exception {
         UserAccount student = new UserAccount("stu", "p", UserRole.STUDENT, "Stu");
         student.setId(6L);
-        when(authService.findUserByToken("t2")).thenReturn(Optional.of(student));
 
         EquipmentInput in = new EquipmentInput();
         in.itemName = "x";
 
-        mvc.perform(post("/api/equipment").header("X-Auth-Token", "t2")
+        mvc.perform(post("/api/equipment").requestAttr(JwtAuthFilter.CURRENT_USER_ATTRIBUTE, student)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(mapper.writeValueAsString(in)))
                 .andExpect(status().isForbidden());
@@ -0,0 +1,185 @@
+package com.school.lending.repo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BorrowRequestRepositoryTest {
+
+    @Autowired
+    BorrowRequestRepository repo;
+
+    @Autowired
+    TestEntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    /**
+     * Load one page the way the list endpoint does and serialize it, counting
+     * the SQL statements issued.
+     */
+    private long statementsToRender(int rows) throws Exception {
+        for (int i = 0; i < rows; i++) {
+            UserAccount user = em.persist(new UserAccount("n1-" + rows + "-" + i, "x", UserRole.STUDENT, "User " + i));
+            Equipment eq = em.persist(new Equipment("Item " + i, "cat", "ok", 5, 5));
+            em.persist(new BorrowRequest(user, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1));
+        }
+        em.flush();
+        em.clear();
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        List<BorrowRequest> page = repo.findPage(null, null, null, null, null, null, null, PageRequest.of(0, 200));
+        String json = mapper.writeValueAsString(page);
+        assertTrue(json.contains("\"displayName\":\"User 0\""));
+        assertTrue(json.contains("\"itemName\":\"Item 0\""));
+        return stats.getPrepareStatementCount();
+    }
+
+    @Test
+    void findPage_loadsRequesterAndEquipmentInOneStatement_small() throws Exception {
+        assertEquals(1, statementsToRender(3));
+    }
+
+    @Test
+    void findPage_loadsRequesterAndEquipmentInOneStatement_large() throws Exception {
+        assertEquals(1, statementsToRender(60));
+    }
+
+    @Test
+    void bulkInsert_isSentInJdbcBatches() {
+        int rows = 200;
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        UserAccount user = em.persist(new UserAccount("bulk", "x", UserRole.STUDENT, "Bulk"));
+        Equipment eq = em.persist(new Equipment("cam", "photo", "ok", 5, 5));
+        for (int i = 0; i < rows; i++) {
+            em.persist(new BorrowRequest(user, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1));
+        }
+        em.flush();
+
+        assertEquals(rows + 2, stats.getEntityInsertCount());
+        // one statement per batch of 50 plus one sequence call per 50 ids,
+        // against one statement per row without batching
+        assertTrue(stats.getPrepareStatementCount() < rows / 5,
+                "expected batched inserts, got " + stats.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    void findPage_walksEveryRowOnce_newestFirst() {
+        UserAccount user = em.persist(new UserAccount("pager", "x", UserRole.STUDENT, "Pager"));
+        Equipment eq = em.persist(new Equipment("cam", "photo", "ok", 5, 5));
+        OffsetDateTime sameInstant = OffsetDateTime.parse("2025-01-01T10:00:00Z");
+        for (int i = 0; i < 23; i++) {
+            BorrowRequest r = new BorrowRequest(user, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+            // several rows share a timestamp so the id tiebreaker is exercised
+            r.setCreatedAt(sameInstant.plusMinutes(i / 4));
+            em.persist(r);
+        }
+        em.flush();
+        em.clear();
+
+        Set<Long> seen = new HashSet<>();
+        List<BorrowRequest> all = new ArrayList<>();
+        OffsetDateTime afterCreated = null;
+        Long afterId = null;
+        while (true) {
+            List<BorrowRequest> page = repo.findPage(user.getId(), null, null, null, null,
+                    afterCreated, afterId, PageRequest.of(0, 5));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (BorrowRequest r : page) {
+                assertTrue(seen.add(r.getId()), "row " + r.getId() + " returned twice");
+            }
+            all.addAll(page);
+            BorrowRequest last = page.get(page.size() - 1);
+            afterCreated = last.getCreatedAt();
+            afterId = last.getId();
+        }
+
+        assertEquals(23, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            BorrowRequest prev = all.get(i - 1);
+            BorrowRequest cur = all.get(i);
+            int cmp = prev.getCreatedAt().compareTo(cur.getCreatedAt());
+            assertTrue(cmp > 0 || (cmp == 0 && prev.getId() > cur.getId()));
+        }
+    }
+
+    @Test
+    void findPage_appliesFilters() {
+        UserAccount user = em.persist(new UserAccount("filter", "x", UserRole.STUDENT, "Filter"));
+        Equipment cam = em.persist(new Equipment("cam", "photo", "ok", 5, 5));
+        Equipment kit = em.persist(new Equipment("kit", "sports", "ok", 5, 5));
+        BorrowRequest early = new BorrowRequest(user, cam, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 3), 1);
+        BorrowRequest late = new BorrowRequest(user, cam, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 3), 1);
+        late.setStatus(BorrowStatus.APPROVED);
+        BorrowRequest other = new BorrowRequest(user, kit, LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 2), 1);
+        em.persist(early);
+        em.persist(late);
+        em.persist(other);
+        em.flush();
+
+        List<BorrowRequest> camInMarch = repo.findPage(null, null, cam.getId(),
+                LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 31), null, null, PageRequest.of(0, 10));
+        assertEquals(List.of(early.getId()), camInMarch.stream().map(BorrowRequest::getId).toList());
+
+        List<BorrowRequest> approved = repo.findPage(user.getId(), BorrowStatus.APPROVED, null,
+                null, null, null, null, PageRequest.of(0, 10));
+        assertEquals(List.of(late.getId()), approved.stream().map(BorrowRequest::getId).toList());
+    }
+
+    @Test
+    void findItemsReservations_returnsActiveOverlapsOfRequestedItemsOnly() {
+        UserAccount user = em.persist(new UserAccount("window", "x", UserRole.STUDENT, "Window"));
+        Equipment cam = em.persist(new Equipment("cam", "photo", "ok", 5, 5));
+        Equipment kit = em.persist(new Equipment("kit", "sports", "ok", 5, 5));
+        Equipment other = em.persist(new Equipment("mic", "audio", "ok", 5, 5));
+        BorrowRequest camApproved = new BorrowRequest(user, cam, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 5), 2);
+        camApproved.setStatus(BorrowStatus.APPROVED);
+        BorrowRequest camPending = new BorrowRequest(user, cam, LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 3), 1);
+        BorrowRequest kitIssued = new BorrowRequest(user, kit, LocalDate.of(2025, 3, 4), LocalDate.of(2025, 3, 9), 1);
+        kitIssued.setStatus(BorrowStatus.ISSUED);
+        BorrowRequest kitLater = new BorrowRequest(user, kit, LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 2), 1);
+        kitLater.setStatus(BorrowStatus.APPROVED);
+        BorrowRequest otherApproved = new BorrowRequest(user, other, LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 2), 1);
+        otherApproved.setStatus(BorrowStatus.APPROVED);
+        for (BorrowRequest r : List.of(camApproved, camPending, kitIssued, kitLater, otherApproved)) {
+            em.persist(r);
+        }
+        em.flush();
+
+        Set<Long> found = new HashSet<>();
+        repo.findItemsReservations(List.of(cam.getId(), kit.getId()),
+                        List.of(BorrowStatus.APPROVED, BorrowStatus.ISSUED),
+                        LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 10))
+                .forEach(r -> found.add(r.requestId()));
+        assertEquals(Set.of(camApproved.getId(), kitIssued.getId()), found);
+    }
+}
@@ -0,0 +1,165 @@
+package com.school.lending.repo;
+
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inserts 100k borrow requests with IDENTITY keys (the mapping V2 replaced)
+ * and with the pooled sequence, and compares the statements Hibernate
+ * prepared for each. Rates are logged for reference only.
+ *
+ * <p>Slow, so only runs with {@code -Dbench=true}.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@EnabledIfSystemProperty(named = "bench", matches = "true")
+class BulkInsertBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInsertBenchmarkTest.class);
+
+    private static final int ROWS = 100_000;
+    private static final int ROWS_PER_TX = 5_000;
+    private static final int BATCH = 50;
+
+    /**
+     * Borrow request row keyed by the table's IDENTITY column, as before V2:
+     * Hibernate must read each generated key back, so it cannot batch.
+     */
+    @Entity
+    @Table(name = "borrow_requests")
+    static class IdentityBorrowRow {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(name = "user_id")
+        Long userId;
+
+        @Column(name = "equipment_id")
+        Long equipmentId;
+
+        LocalDate startDate;
+
+        LocalDate endDate;
+
+        int qty;
+
+        String status = "PENDING";
+
+        IdentityBorrowRow() {
+        }
+
+        IdentityBorrowRow(Long userId, Long equipmentId, LocalDate startDate, LocalDate endDate, int qty) {
+            this.userId = userId;
+            this.equipmentId = equipmentId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.qty = qty;
+        }
+    }
+
+    /** What one run cost: statements prepared, rows inserted and elapsed time. */
+    private record Run(long statements, long inserts, double seconds) {
+
+        double rowsPerSecond() {
+            return inserts / seconds;
+        }
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    EntityManagerFactory emf;
+
+    @Autowired
+    PlatformTransactionManager txManager;
+
+    private Run insert(BiFunction<Long, Long, Object> newRow) {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        Long[] refs = tx.execute(status -> {
+            UserAccount user = new UserAccount("bench-" + System.nanoTime(), "x", UserRole.STUDENT, "Bench");
+            Equipment eq = new Equipment("Bench item", "Bench", "", 1, 1);
+            em.persist(user);
+            em.persist(eq);
+            return new Long[]{user.getId(), eq.getId()};
+        });
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        long began = System.nanoTime();
+        for (int done = 0; done < ROWS; done += ROWS_PER_TX) {
+            tx.executeWithoutResult(status -> {
+                for (int i = 0; i < ROWS_PER_TX; i++) {
+                    em.persist(newRow.apply(refs[0], refs[1]));
+                    if ((i + 1) % BATCH == 0) {
+                        em.flush();
+                        em.clear();
+                    }
+                }
+            });
+        }
+        Run run = new Run(stats.getPrepareStatementCount(), stats.getEntityInsertCount(),
+                (System.nanoTime() - began) / 1e9);
+
+        tx.executeWithoutResult(status -> {
+            Long count = em.createQuery("select count(r) from BorrowRequest r where r.gear.id = :id", Long.class)
+                    .setParameter("id", refs[1]).getSingleResult();
+            assertEquals(ROWS, count.intValue());
+            em.createQuery("delete from BorrowRequest r where r.gear.id = :id").setParameter("id", refs[1]).executeUpdate();
+        });
+        return run;
+    }
+
+    @Test
+    void sequenceKeys_insertInBatches_whereIdentityKeysNeedAStatementPerRow() {
+        LocalDate start = LocalDate.now().plusDays(400);
+        Run identity = insert((userId, equipmentId) ->
+                new IdentityBorrowRow(userId, equipmentId, start, start.plusDays(1), 1));
+        Run sequence = insert((userId, equipmentId) -> new BorrowRequest(
+                em.getReference(UserAccount.class, userId), em.getReference(Equipment.class, equipmentId),
+                start, start.plusDays(1), 1));
+
+        log.info("bulk insert: {} rows, identity {} statements ({} rows/sec), sequence {} statements ({} rows/sec)",
+                ROWS, identity.statements(), String.format("%.0f", identity.rowsPerSecond()),
+                sequence.statements(), String.format("%.0f", sequence.rowsPerSecond()));
+
+        assertEquals(ROWS, identity.inserts());
+        assertEquals(ROWS, sequence.inserts());
+        // one INSERT per row
+        assertTrue(identity.statements() >= ROWS, () -> "identity prepared " + identity.statements());
+        // one batched INSERT and one sequence call per BATCH rows, plus the
+        // pooled optimizer's first call
+        assertTrue(sequence.statements() <= 2L * ROWS / BATCH + 1,
+                () -> "sequence prepared " + sequence.statements());
+    }
+}
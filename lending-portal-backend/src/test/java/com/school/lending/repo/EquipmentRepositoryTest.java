@@ -0,0 +1,66 @@
+package com.school.lending.repo;
+
+import com.school.lending.model.Equipment;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class EquipmentRepositoryTest {
+
+    @Autowired
+    EquipmentRepository repo;
+
+    @Autowired
+    TestEntityManager em;
+
+    private Equipment reload(Long id) {
+        em.clear();
+        return repo.findById(id).orElseThrow();
+    }
+
+    @Test
+    void decrementAvailable_clampsAtZero_andBumpsVersion() {
+        Equipment eq = em.persistFlushFind(new Equipment("cam", "photo", "ok", 5, 3));
+        long before = eq.getVersion();
+
+        assertEquals(1, repo.decrementAvailable(eq.getId(), 2));
+        assertEquals(1, reload(eq.getId()).getAvailableQuantity());
+
+        assertEquals(1, repo.decrementAvailable(eq.getId(), 4));
+        Equipment after = reload(eq.getId());
+        assertEquals(0, after.getAvailableQuantity());
+        assertEquals(before + 2, after.getVersion().longValue());
+
+        assertEquals(0, repo.decrementAvailable(eq.getId(), 1));
+    }
+
+    @Test
+    void incrementAvailable_capsAtTotal() {
+        Equipment eq = em.persistFlushFind(new Equipment("cam", "photo", "ok", 5, 3));
+
+        assertEquals(1, repo.incrementAvailable(eq.getId(), 10));
+        assertEquals(5, reload(eq.getId()).getAvailableQuantity());
+
+        assertEquals(0, repo.incrementAvailable(eq.getId(), 1));
+    }
+
+    @Test
+    void findByCategoryKey_matchesAnyCase() {
+        em.persist(new Equipment("cam", "Photo", "ok", 5, 5));
+        em.persist(new Equipment("lens", "PHOTO", "ok", 5, 5));
+        em.persist(new Equipment("ball", "Sports", "ok", 5, 5));
+        em.flush();
+
+        assertEquals(2, repo.findByCategoryKey(Equipment.keyFor("photo")).size());
+    }
+
+    @Test
+    void adjustments_onMissingRow_reportNothingApplied() {
+        assertEquals(0, repo.decrementAvailable(-1L, 1));
+        assertEquals(0, repo.incrementAvailable(-1L, 1));
+    }
+}
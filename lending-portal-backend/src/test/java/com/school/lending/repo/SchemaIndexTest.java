@@ -0,0 +1,218 @@
+package com.school.lending.repo;
+
+import com.school.lending.model.BorrowStatus;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the migration-defined indexes: each hot repository query is run,
+ * the SQL Hibernate generated for it is EXPLAINed against the Flyway schema,
+ * and the plan must seek on the expected index, not scan a table or an
+ * index from end to end.
+ */
+@DataJpaTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SchemaIndexTest {
+
+    private static final String[] STATUSES = {"PENDING", "APPROVED", "ISSUED", "RETURNED", "REJECTED"};
+
+    @TestConfiguration
+    static class CaptureConfig {
+
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer captureStatements(SqlCapture capture) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, capture);
+        }
+    }
+
+    /**
+     * Records every statement Hibernate prepares.
+     */
+    static class SqlCapture implements StatementInspector {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+
+        String lastQuery() {
+            for (int i = statements.size() - 1; i >= 0; i--) {
+                if (statements.get(i).trim().toLowerCase(Locale.ROOT).startsWith("select")) {
+                    return statements.get(i);
+                }
+            }
+            return fail("no query was sent");
+        }
+    }
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    SqlCapture capture;
+
+    @Autowired
+    BorrowRequestRepository borrowRepo;
+
+    LocalDate from = LocalDate.of(2025, 2, 1);
+    LocalDate to = LocalDate.of(2025, 3, 1);
+
+    /**
+     * Seed once for the class. ANALYZE commits, so rows inserted here
+     * outlive the per-test transaction rollback.
+     */
+    @BeforeAll
+    void seed() {
+        for (int i = 0; i < 100; i++) {
+            jdbc.update("insert into users (username, password, role, display_name) values (?, 'x', 'STUDENT', ?)",
+                    "idx-user-" + i, "User " + i);
+            jdbc.update("insert into equipment (item_name, category, category_key, total_quantity, available_quantity) "
+                    + "values (?, ?, ?, 5, 5)", "Item " + i, "Cat" + (i % 25), "cat" + (i % 25));
+        }
+        Long firstUser = jdbc.queryForObject("select min(id) from users", Long.class);
+        Long firstItem = jdbc.queryForObject("select min(id) from equipment", Long.class);
+        for (int i = 0; i < 2000; i++) {
+            jdbc.update("insert into borrow_requests (user_id, equipment_id, start_date, end_date, qty, status, created_at) "
+                            + "values (?, ?, DATEADD('DAY', ?, DATE '2025-01-01'), DATEADD('DAY', ?, DATE '2025-01-01'), 1, ?, "
+                            + "DATEADD('MINUTE', ?, TIMESTAMP WITH TIME ZONE '2025-01-01 00:00:00+00'))",
+                    firstUser + i % 100, firstItem + i % 100, i % 300, i % 300 + 2, STATUSES[i % 5], i);
+        }
+        jdbc.execute("ANALYZE");
+    }
+
+    private String plan(String sql, Object... args) {
+        String plan = jdbc.queryForObject("EXPLAIN " + sql, String.class, args);
+        assertNotNull(plan);
+        assertFalse(plan.contains("tableScan"), () -> "query fell back to a table scan:\n" + plan);
+        return plan.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Run a repository query and EXPLAIN the statement Hibernate sent for
+     * it. H2 plans a prepared statement without looking at its parameters,
+     * so every parameter is bound to null.
+     */
+    private String planOfLastQuery(Runnable query) {
+        capture.statements.clear();
+        query.run();
+        String sql = capture.lastQuery();
+        Object[] args = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return plan(sql, args);
+    }
+
+    /**
+     * Assert that the plan seeks on an index: H2 prints the conditions it
+     * looks the index up with after the index name, and nothing when it
+     * walks the whole index.
+     */
+    private void assertSeeks(String plan, String index) {
+        assertTrue(plan.contains(index + ":"), () -> "expected a seek on " + index + ":\n" + plan);
+    }
+
+    @Test
+    void findItemReservations_seeksEquipmentStatusDatesIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findItemReservations(3L, List.of(BorrowStatus.APPROVED, BorrowStatus.ISSUED), from, to));
+        assertSeeks(plan, "ix_borrow_equipment_status_dates");
+    }
+
+    @Test
+    void findReservations_seeksStatusEndStartIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findReservations(List.of(BorrowStatus.APPROVED, BorrowStatus.ISSUED), from, to));
+        assertSeeks(plan, "ix_borrow_status_end_start");
+    }
+
+    @Test
+    void findByStatus_seeksAStatusIndex() {
+        String plan = planOfLastQuery(() -> borrowRepo.findByStatus(BorrowStatus.PENDING));
+        assertTrue(plan.matches("(?s).*ix_borrow_status_\\w+:.*"), plan);
+    }
+
+    @Test
+    void findRefsByStatus_seeksAStatusIndex() {
+        String plan = planOfLastQuery(() -> borrowRepo.findRefsByStatus(BorrowStatus.PENDING));
+        assertTrue(plan.matches("(?s).*ix_borrow_status_\\w+:.*"), plan);
+    }
+
+    @Test
+    void findPage_byRequester_seeksUserCreatedIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findPage(3L, BorrowStatus.APPROVED, null, null, null, null, null, PageRequest.of(0, 51)));
+        assertSeeks(plan, "ix_borrow_user_created");
+    }
+
+    @Test
+    void findPage_byRequester_nextPage_seeksUserCreatedIndex() {
+        OffsetDateTime after = OffsetDateTime.of(2025, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findPage(3L, null, null, null, null, after, 500L, PageRequest.of(0, 51)));
+        assertSeeks(plan, "ix_borrow_user_created");
+    }
+
+    @Test
+    void findPage_byStatus_seeksStatusCreatedIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findPage(null, BorrowStatus.PENDING, null, from, to, null, null, PageRequest.of(0, 51)));
+        assertSeeks(plan, "ix_borrow_status_created");
+    }
+
+    @Test
+    void findPage_byEquipment_seeksEquipmentCreatedIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findPage(null, null, 3L, null, null, null, null, PageRequest.of(0, 51)));
+        assertSeeks(plan, "ix_borrow_equipment_created");
+    }
+
+    @Test
+    void findPage_unfiltered_seeksCreatedIndex() {
+        String plan = planOfLastQuery(() ->
+                borrowRepo.findPage(null, null, null, null, null, null, null, PageRequest.of(0, 51)));
+        assertSeeks(plan, "ix_borrow_created");
+    }
+
+    @Test
+    void login_usesUniqueUsernameIndex() {
+        String plan = plan("select * from users u where u.username = ?", "idx-user-7");
+        assertTrue(plan.contains("ux_users_username"), plan);
+    }
+
+    @Test
+    void categoryFilter_usesCategoryKeyIndex() {
+        String plan = plan("select * from equipment e where e.category_key = ? order by e.id", "cat7");
+        assertTrue(plan.contains("ix_equipment_category_key"), plan);
+    }
+
+    @Test
+    void username_isUnique() {
+        assertThrows(org.springframework.dao.DataIntegrityViolationException.class, () ->
+                jdbc.update("insert into users (username, role) values ('idx-user-1', 'STUDENT')"));
+    }
+}
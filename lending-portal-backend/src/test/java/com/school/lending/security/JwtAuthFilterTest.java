@@ -1,5 +1,6 @@
 package com.school.lending.security;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
 import com.school.lending.repo.UserAccountRepository;
@@ -29,10 +30,11 @@ class JwtAuthFilterTest {
     void doFilter_setsAuthentication_whenTokenValid() throws Exception {
         JwtUtil jwt = mock(JwtUtil.class);
         UserAccountRepository repo = mock(UserAccountRepository.class);
-        JwtAuthFilter filter = new JwtAuthFilter(jwt, repo);
+        JwtAuthFilter filter = new JwtAuthFilter(jwt, repo, new TokenGenerations(), new RevocationList(), false);
 
-        when(jwt.validateToken("T1")).thenReturn(true);
-        when(jwt.getUsername("T1")).thenReturn("alice");
+        DecodedJWT decoded = mock(DecodedJWT.class, RETURNS_DEEP_STUBS);
+        when(decoded.getSubject()).thenReturn("alice");
+        when(jwt.verify("T1")).thenReturn(Optional.of(decoded));
 
         UserAccount u = new UserAccount("alice","x", UserRole.STAFF, "Alice");
         when(repo.findByUsername("alice")).thenReturn(Optional.of(u));
@@ -47,6 +49,67 @@ class JwtAuthFilterTest {
 
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
         assertEquals("alice", SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+        assertSame(u, req.getAttribute(JwtAuthFilter.CURRENT_USER_ATTRIBUTE));
         verify(chain).doFilter(req, resp);
     }
+
+    @Test
+    void claimsTrust_buildsUserFromToken_withoutRepository() throws Exception {
+        JwtUtil jwt = new JwtUtil("tests-secret-123", 3600000);
+        UserAccountRepository repo = mock(UserAccountRepository.class);
+        JwtAuthFilter filter = new JwtAuthFilter(jwt, repo, new TokenGenerations(), new RevocationList(), true);
+
+        UserAccount u = new UserAccount("bob", "x", UserRole.ADMIN, "Bob");
+        u.setId(9L);
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader("X-Auth-Token", jwt.generateToken(u));
+
+        filter.doFilterInternal(req, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        UserAccount found = (UserAccount) req.getAttribute(JwtAuthFilter.CURRENT_USER_ATTRIBUTE);
+        assertNotNull(found);
+        assertEquals(9L, found.getId().longValue());
+        assertEquals(UserRole.ADMIN, found.getRole());
+        assertEquals("Bob", found.getDisplayName());
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void bumpedGeneration_rejectsOlderTokens() throws Exception {
+        JwtUtil jwt = new JwtUtil("tests-secret-123", 3600000);
+        TokenGenerations generations = new TokenGenerations();
+        JwtAuthFilter filter = new JwtAuthFilter(jwt, mock(UserAccountRepository.class), generations, new RevocationList(), true);
+
+        UserAccount u = new UserAccount("bob", "x", UserRole.STAFF, "Bob");
+        u.setId(9L);
+        String token = jwt.generateToken(u, generations.current(9L));
+        generations.bump(9L);
+
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader("X-Auth-Token", token);
+        filter.doFilterInternal(req, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        assertNull(req.getAttribute(JwtAuthFilter.CURRENT_USER_ATTRIBUTE));
+    }
+
+    @Test
+    void revokedTokenId_isRejected() throws Exception {
+        JwtUtil jwt = new JwtUtil("tests-secret-123", 3600000);
+        RevocationList revocations = new RevocationList();
+        JwtAuthFilter filter = new JwtAuthFilter(jwt, mock(UserAccountRepository.class), new TokenGenerations(),
+                revocations, true);
+
+        UserAccount u = new UserAccount("bob", "x", UserRole.STAFF, "Bob");
+        u.setId(9L);
+        String token = jwt.generateToken(u);
+        DecodedJWT decoded = jwt.verify(token).orElseThrow();
+        revocations.revoke(decoded.getId(), decoded.getExpiresAt().toInstant());
+
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.addHeader("X-Auth-Token", token);
+        filter.doFilterInternal(req, new MockHttpServletResponse(), mock(FilterChain.class));
+
+        assertNull(req.getAttribute(JwtAuthFilter.CURRENT_USER_ATTRIBUTE));
+    }
 }
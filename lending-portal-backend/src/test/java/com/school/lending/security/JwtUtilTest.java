@@ -1,5 +1,6 @@
 package com.school.lending.security;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
 import org.junit.jupiter.api.Test;
@@ -20,4 +21,98 @@ class JwtUtilTest {
         assertEquals("joe", util.getUsername(token));
         assertEquals(42L, util.getUserId(token).longValue());
     }
+
+    @Test
+    void claimsTrust_capsLifetime_andCarriesClaims() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000, 100, true, 60000);
+        UserAccount u = new UserAccount("joe","p", UserRole.STAFF, "Joe");
+        u.setId(42L);
+
+        DecodedJWT jwt = util.verify(util.generateToken(u, 3)).orElseThrow();
+        long lifetime = jwt.getExpiresAt().getTime() - jwt.getIssuedAt().getTime();
+        assertTrue(lifetime <= 60000);
+        assertEquals(3, JwtUtil.generationOf(jwt));
+        UserAccount fromClaims = JwtUtil.accountFromClaims(jwt).orElseThrow();
+        assertEquals("joe", fromClaims.getUsername());
+        assertEquals(UserRole.STAFF, fromClaims.getRole());
+        assertEquals("Joe", fromClaims.getDisplayName());
+    }
+
+    @Test
+    void verifiedTokens_areServedFromCache() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000);
+        UserAccount u = new UserAccount("ann","p", UserRole.STAFF, "Ann");
+        u.setId(7L);
+        String token = util.generateToken(u);
+
+        assertTrue(util.validateToken(token));
+        assertEquals("ann", util.getUsername(token));
+        assertEquals(7L, util.getUserId(token).longValue());
+
+        assertEquals(1, util.getCacheMisses());
+        assertEquals(2, util.getCacheHits());
+        assertEquals(1, util.getCacheSize());
+    }
+
+    @Test
+    void invalidTokens_areNotCached() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000);
+        assertFalse(util.validateToken("not-a-jwt"));
+        assertFalse(util.validateToken("not-a-jwt"));
+        assertEquals(0, util.getCacheSize());
+        assertEquals(2, util.getCacheMisses());
+    }
+
+    @Test
+    void cache_isBoundedBySize() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000, 2);
+        for (long id = 1; id <= 5; id++) {
+            UserAccount u = new UserAccount("user" + id, "p", UserRole.STUDENT, "U");
+            u.setId(id);
+            assertTrue(util.validateToken(util.generateToken(u)));
+        }
+        assertTrue(util.getCacheSize() <= 2);
+    }
+
+    @Test
+    void fullCache_evictsTheTokenClosestToExpiry() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000, 2);
+        JwtUtil shortLived = new JwtUtil("tests-secret-123", 60000);
+        UserAccount u = new UserAccount("user", "p", UserRole.STUDENT, "U");
+        u.setId(1L);
+        String hot = util.generateToken(u);
+        String soon = shortLived.generateToken(u);
+        String fresh = util.generateToken(u, 1);
+
+        assertTrue(util.validateToken(hot));
+        assertTrue(util.validateToken(soon));
+        assertTrue(util.validateToken(fresh));
+        assertEquals(2, util.getCacheSize());
+        assertEquals(3, util.getCacheMisses());
+
+        assertTrue(util.validateToken(hot));
+        assertTrue(util.validateToken(fresh));
+        assertEquals(2, util.getCacheHits());
+        assertTrue(util.validateToken(soon));
+        assertEquals(4, util.getCacheMisses());
+    }
+
+    @Test
+    void purgeExpired_dropsOnlyExpiredTokens() {
+        JwtUtil util = new JwtUtil("tests-secret-123", 3600000, 10);
+        UserAccount u = new UserAccount("user", "p", UserRole.STUDENT, "U");
+        u.setId(1L);
+        assertTrue(util.validateToken(util.generateToken(u)));
+        util.purgeExpired();
+        assertEquals(1, util.getCacheSize());
+    }
+
+    @Test
+    void expiredTokens_areRejected() {
+        JwtUtil util = new JwtUtil("tests-secret-123", -1000);
+        UserAccount u = new UserAccount("old","p", UserRole.STUDENT, "Old");
+        u.setId(3L);
+        assertFalse(util.validateToken(util.generateToken(u)));
+        assertEquals(0, util.getCacheSize());
+    }
 }
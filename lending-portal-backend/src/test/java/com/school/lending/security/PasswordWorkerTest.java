@@ -0,0 +1,97 @@
+package com.school.lending.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordWorkerTest {
+
+    /** Encoder that blocks until released, standing in for slow BCrypt. */
+    static class GatedEncoder implements PasswordEncoder {
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence raw) {
+            await();
+            return "h:" + raw;
+        }
+
+        @Override
+        public boolean matches(CharSequence raw, String encoded) {
+            await();
+            return encoded.equals("h:" + raw);
+        }
+
+        private void await() {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    void hashesOnPool_andRecordsLatency() {
+        GatedEncoder encoder = new GatedEncoder();
+        encoder.gate.countDown();
+        PasswordWorker worker = new PasswordWorker(encoder, 2, 4, 1000);
+        try {
+            assertEquals("h:pw", worker.encode("pw"));
+            assertTrue(worker.matches("pw", "h:pw"));
+            assertEquals(2, worker.getHashCount());
+            assertEquals(0, worker.getRejectedCount());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsWith503_whenQueueIsFull() throws Exception {
+        GatedEncoder encoder = new GatedEncoder();
+        PasswordWorker worker = new PasswordWorker(encoder, 1, 1, 5000);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // one job running, one queued
+            callers.submit(() -> worker.encode("a"));
+            callers.submit(() -> worker.encode("b"));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (worker.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, worker.getQueueDepth());
+
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> worker.encode("c"));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+            assertEquals("1", ex.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+            assertEquals(1, worker.getRejectedCount());
+        } finally {
+            encoder.gate.countDown();
+            callers.shutdown();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsWith503_whenWaitExceedsTimeout() {
+        GatedEncoder encoder = new GatedEncoder();
+        PasswordWorker worker = new PasswordWorker(encoder, 1, 4, 50);
+        try {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> worker.matches("a", "h:a"));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        } finally {
+            encoder.gate.countDown();
+            worker.shutdown();
+        }
+    }
+}
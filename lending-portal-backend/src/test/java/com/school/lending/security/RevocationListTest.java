@@ -0,0 +1,58 @@
+package com.school.lending.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationListTest {
+
+    @Test
+    void revokedIds_areReported_othersAreNot() {
+        RevocationList list = new RevocationList(1 << 12);
+        list.revoke("a", Instant.now().plusSeconds(60));
+
+        assertTrue(list.isRevoked("a"));
+        assertFalse(list.isRevoked("b"));
+        assertFalse(list.isRevoked(null));
+    }
+
+    @Test
+    void alreadyExpiredTokens_areNotStored() {
+        RevocationList list = new RevocationList(1 << 12);
+        list.revoke("old", Instant.now().minusSeconds(1));
+
+        assertFalse(list.isRevoked("old"));
+        assertEquals(0, list.size());
+    }
+
+    @Test
+    void purge_dropsExpiredEntries_andKeepsLiveOnes() throws Exception {
+        RevocationList list = new RevocationList(1 << 12);
+        list.revoke("short", Instant.now().plusMillis(20));
+        list.revoke("long", Instant.now().plusSeconds(60));
+        Thread.sleep(40);
+
+        list.purgeExpired();
+
+        assertEquals(1, list.size());
+        assertFalse(list.isRevoked("short"));
+        assertTrue(list.isRevoked("long"));
+    }
+
+    @Test
+    void manyRevocations_haveNoFalseNegatives() {
+        RevocationList list = new RevocationList(1 << 16);
+        Instant exp = Instant.now().plusSeconds(60);
+        for (int i = 0; i < 5000; i++) {
+            list.revoke("jti-" + i, exp);
+        }
+        for (int i = 0; i < 5000; i++) {
+            assertTrue(list.isRevoked("jti-" + i));
+        }
+        for (int i = 5000; i < 10000; i++) {
+            assertFalse(list.isRevoked("jti-" + i));
+        }
+    }
+}
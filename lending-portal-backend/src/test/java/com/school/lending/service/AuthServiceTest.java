@@ -1,20 +1,25 @@
 package com.school.lending.service;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.school.lending.model.UserAccount;
 import com.school.lending.model.UserRole;
 import com.school.lending.repo.UserAccountRepository;
 import com.school.lending.security.JwtUtil;
+import com.school.lending.security.PasswordWorker;
+import com.school.lending.security.RevocationList;
+import com.school.lending.security.TokenGenerations;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,11 +29,20 @@ class AuthServiceTest {
     UserAccountRepository repo;
 
     @Mock
-    PasswordEncoder encoder;
+    PasswordWorker passwordWorker;
 
     @Mock
     JwtUtil jwtUtil;
 
+    @Spy
+    TokenGenerations tokenGenerations = new TokenGenerations();
+
+    @Spy
+    RevocationList revocationList = new RevocationList();
+
+    @Mock
+    RefreshTokenService refreshTokenService;
+
     @InjectMocks
     AuthService authService;
 
@@ -43,7 +57,7 @@ class AuthServiceTest {
     @Test
     void login_success() {
         when(repo.findByUsername("k")).thenReturn(Optional.of(u));
-        when(encoder.matches("plain", "enc")).thenReturn(true);
+        when(passwordWorker.matches("plain", "enc")).thenReturn(true);
 
         Optional<UserAccount> out = authService.login("k", "plain");
         assertTrue(out.isPresent());
@@ -62,17 +76,31 @@ class AuthServiceTest {
     }
 
     @Test
-    void issueToken_and_findUserByToken() {
-        when(jwtUtil.generateToken(u)).thenReturn("T1");
-        when(jwtUtil.validateToken("T1")).thenReturn(true);
-        when(jwtUtil.getUsername("T1")).thenReturn("k");
-        when(repo.findByUsername("k")).thenReturn(Optional.of(u));
+    void issueToken_signsWithCurrentGeneration() {
+        when(jwtUtil.generateToken(u, 0)).thenReturn("T1");
+
+        assertEquals("T1", authService.issueToken(u));
+    }
+
+    @Test
+    void revokeTokens_bumpsGeneration() {
+        authService.revokeTokens(7L);
+        when(jwtUtil.generateToken(u, 1)).thenReturn("T2");
+
+        assertEquals("T2", authService.issueToken(u));
+        assertFalse(tokenGenerations.isCurrent(7L, 0));
+        verify(refreshTokenService).revokeAll(7L);
+    }
+
+    @Test
+    void logout_revokesAccessAndRefreshTokens() {
+        JwtUtil real = new JwtUtil("tests-secret-123", 3600000);
+        DecodedJWT jwt = real.verify(real.generateToken(u)).orElseThrow();
+        when(jwtUtil.verify("T1")).thenReturn(Optional.of(jwt));
 
-        String t = authService.issueToken(u);
-        assertEquals("T1", t);
+        authService.logout("T1", "R1");
 
-        Optional<UserAccount> found = authService.findUserByToken("T1");
-        assertTrue(found.isPresent());
-        assertEquals(u.getUsername(), found.get().getUsername());
+        assertTrue(revocationList.isRevoked(jwt.getId()));
+        verify(refreshTokenService).revoke("R1");
     }
 }
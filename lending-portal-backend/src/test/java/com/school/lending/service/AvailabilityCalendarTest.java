@@ -0,0 +1,155 @@
+package com.school.lending.service;
+
+import com.school.lending.dto.DailyAvailability;
+import com.school.lending.dto.Slot;
+import com.school.lending.dto.WindowAvailability;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.Reservation;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityCalendarTest {
+
+    @Mock
+    BorrowRequestRepository borrowRepo;
+
+    @Mock
+    EquipmentService equipmentService;
+
+    AvailabilityCalendar calendar;
+
+    final LocalDate from = LocalDate.of(2025, 6, 1);
+    final LocalDate to = LocalDate.of(2025, 6, 10);
+
+    @BeforeEach
+    void setup() {
+        calendar = new AvailabilityCalendar(borrowRepo, equipmentService, new PeakUsageConflictPolicy(), 100, 30);
+    }
+
+    private void stubItem() {
+        Equipment eq = new Equipment("cam", "photo", "ok", 5, 5);
+        eq.setId(7L);
+        when(equipmentService.findOne(7L)).thenReturn(Optional.of(eq));
+    }
+
+    @Test
+    void freeQuantityPerDay_fromOneRangeQuery() {
+        stubItem();
+        when(borrowRepo.findItemReservations(eq(7L), any(), eq(from), eq(to))).thenReturn(List.of(
+                new Reservation(1L, 7L, LocalDate.of(2025, 5, 30), LocalDate.of(2025, 6, 2), 2),
+                new Reservation(2L, 7L, LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 4), 3),
+                new Reservation(3L, 7L, LocalDate.of(2025, 6, 9), LocalDate.of(2025, 6, 20), 1)));
+
+        DailyAvailability result = calendar.forItem(7L, from, to).orElseThrow();
+
+        assertEquals(10, result.days().size());
+        int[] free = result.days().stream().mapToInt(DailyAvailability.Day::free).toArray();
+        assertArrayEquals(new int[]{3, 0, 2, 2, 5, 5, 5, 5, 4, 4}, free);
+        assertEquals(from, result.days().get(0).date());
+        verify(borrowRepo, times(1)).findItemReservations(eq(7L), any(), eq(from), eq(to));
+    }
+
+    @Test
+    void cachedUntilABookingChangeForThatItem() {
+        stubItem();
+        when(borrowRepo.findItemReservations(eq(7L), any(), eq(from), eq(to))).thenReturn(List.of());
+
+        calendar.forItem(7L, from, to);
+        calendar.forItem(7L, from, to);
+        calendar.onRequestStatusChanged(new RequestStatusChanged(1L, 2L, 8L, BorrowStatus.APPROVED));
+        calendar.forItem(7L, from, to);
+        verify(borrowRepo, times(1)).findItemReservations(eq(7L), any(), eq(from), eq(to));
+
+        calendar.onRequestStatusChanged(new RequestStatusChanged(1L, 2L, 7L, BorrowStatus.APPROVED));
+        calendar.forItem(7L, from, to);
+        verify(borrowRepo, times(2)).findItemReservations(eq(7L), any(), eq(from), eq(to));
+    }
+
+    @Test
+    void forWindow_loadsAllItemsInOneQuery_andCountsPeakUsage() {
+        Equipment cam = new Equipment("cam", "photo", "ok", 5, 5);
+        cam.setId(7L);
+        Equipment tripod = new Equipment("tripod", "photo", "ok", 2, 2);
+        tripod.setId(8L);
+        Equipment mic = new Equipment("mic", "audio", "ok", 3, 3);
+        mic.setId(9L);
+        when(borrowRepo.findItemsReservations(eq(List.of(7L, 8L, 9L)), any(), eq(from), eq(to))).thenReturn(List.of(
+                // back to back, never held at the same time
+                new Reservation(1L, 7L, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 3), 3),
+                new Reservation(2L, 7L, LocalDate.of(2025, 6, 4), LocalDate.of(2025, 6, 6), 3),
+                new Reservation(3L, 8L, LocalDate.of(2025, 5, 20), LocalDate.of(2025, 6, 30), 2)));
+
+        List<WindowAvailability> result = calendar.forWindow(List.of(cam, tripod, mic), from, to);
+
+        assertEquals(List.of(2, 0, 3), result.stream().map(WindowAvailability::freeQuantity).toList());
+        assertEquals(List.of(7L, 8L, 9L), result.stream().map(w -> w.item().getId()).toList());
+        verify(borrowRepo, times(1)).findItemsReservations(any(), any(), any(), any());
+    }
+
+    @Test
+    void nextSlots_returnsEarliestRangesWherePeakLeavesRoom() {
+        stubItem();
+        LocalDate last = from.plusDays(30 + 3 - 2);
+        when(borrowRepo.findItemReservations(eq(7L), any(), eq(from), eq(last))).thenReturn(List.of(
+                new Reservation(1L, 7L, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 4), 4),
+                new Reservation(2L, 7L, LocalDate.of(2025, 6, 6), LocalDate.of(2025, 6, 6), 5)));
+
+        // 2 units for 3 days: 6/1-6/4 has only 1 free, 6/6 none
+        List<Slot> slots = calendar.nextSlots(7L, 2, 3, from, 2).orElseThrow();
+
+        assertEquals(List.of(new Slot(LocalDate.of(2025, 6, 7), LocalDate.of(2025, 6, 9)),
+                new Slot(LocalDate.of(2025, 6, 8), LocalDate.of(2025, 6, 10))), slots);
+
+        // a single unit fits right away
+        assertEquals(new Slot(from, from.plusDays(2)), calendar.nextSlots(7L, 1, 3, from, 1).orElseThrow().get(0));
+    }
+
+    @Test
+    void nextSlots_underOverlapSum_countsBookingsThatNeverMeet() {
+        stubItem();
+        LocalDate last = from.plusDays(30 + 3 - 2);
+        when(borrowRepo.findItemReservations(eq(7L), any(), eq(from), eq(last))).thenReturn(List.of(
+                new Reservation(1L, 7L, LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 1), 3),
+                new Reservation(2L, 7L, LocalDate.of(2025, 6, 3), LocalDate.of(2025, 6, 3), 3)));
+        AvailabilityCalendar overlapSum = new AvailabilityCalendar(borrowRepo, equipmentService,
+                new OverlapSumConflictPolicy(), 100, 30);
+
+        // 6/1-6/3 peaks at 3 but overlaps 6 units in total
+        assertEquals(List.of(new Slot(LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 4)),
+                new Slot(LocalDate.of(2025, 6, 3), LocalDate.of(2025, 6, 5))),
+                overlapSum.nextSlots(7L, 2, 3, from, 2).orElseThrow());
+        assertEquals(List.of(new Slot(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 3)),
+                new Slot(LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 4))),
+                calendar.nextSlots(7L, 2, 3, from, 2).orElseThrow());
+    }
+
+    @Test
+    void nextSlots_moreThanOwned_findsNothing() {
+        stubItem();
+        assertEquals(List.of(), calendar.nextSlots(7L, 6, 1, from, 3).orElseThrow());
+    }
+
+    @Test
+    void reversedOrOverlongRange_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> calendar.forItem(7L, to, from));
+        assertThrows(IllegalArgumentException.class, () -> calendar.forItem(7L, from, from.plusDays(400)));
+        assertThrows(IllegalArgumentException.class, () -> calendar.forWindow(List.of(), to, from));
+    }
+}
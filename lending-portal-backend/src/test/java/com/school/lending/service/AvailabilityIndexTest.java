@@ -0,0 +1,98 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.Reservation;
+import com.school.lending.model.UserAccount;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilityIndexTest {
+
+    @Mock
+    BorrowRequestRepository borrowRepo;
+
+    AvailabilityIndex index;
+
+    Equipment cam;
+    UserAccount u;
+    LocalDate today;
+
+    @BeforeEach
+    void setup() {
+        index = new AvailabilityIndex(borrowRepo, 10, 100);
+        cam = new Equipment("cam", "photo", "ok", 5, 5);
+        cam.setId(1L);
+        u = new UserAccount("u", "p", null, "U");
+        u.setId(2L);
+        today = LocalDate.now();
+    }
+
+    @Test
+    void rebuild_loadsReservations_andAnswersFromMemory() {
+        when(borrowRepo.findReservations(any(), any(), any())).thenReturn(List.of(
+                new Reservation(100L, 1L, today, today.plusDays(2), 2),
+                new Reservation(101L, 1L, today.plusDays(5), today.plusDays(6), 1)));
+        index.rebuild();
+
+        assertEquals(2, index.reservedQuantity(1L, today.plusDays(1), today.plusDays(3), null));
+        assertEquals(3, index.reservedQuantity(1L, today, today.plusDays(10), null));
+        assertEquals(1, index.reservedQuantity(1L, today, today.plusDays(10), 100L));
+        assertEquals(0, index.reservedQuantity(2L, today, today.plusDays(10), null));
+        verify(borrowRepo, never()).findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                any(), any(), any(), any());
+    }
+
+    @Test
+    void reserve_and_release_keepIndexInSync() {
+        index.rebuild();
+        BorrowRequest r = new BorrowRequest(u, cam, today.plusDays(1), today.plusDays(3), 4);
+        r.setId(7L);
+        r.setStatus(BorrowStatus.APPROVED);
+
+        index.reserve(r);
+        index.reserve(r);
+        assertEquals(4, index.reservedQuantity(1L, today.plusDays(3), today.plusDays(4), null));
+
+        index.release(r);
+        assertEquals(0, index.reservedQuantity(1L, today.plusDays(3), today.plusDays(4), null));
+    }
+
+    @Test
+    void rangeOutsideWindow_fallsBackToSql() {
+        index.rebuild();
+        BorrowRequest far = new BorrowRequest(u, cam, today.plusDays(500), today.plusDays(501), 3);
+        far.setId(8L);
+        when(borrowRepo.findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                eq(1L), any(), any(), any())).thenReturn(List.of(far));
+
+        assertEquals(3, index.reservedQuantity(1L, today.plusDays(500), today.plusDays(502), null));
+    }
+
+    @Test
+    void selfCheck_reportsMissingReservations() {
+        index.rebuild();
+        when(borrowRepo.findReservations(any(), any(), any())).thenReturn(List.of(
+                new Reservation(100L, 1L, today, today.plusDays(2), 2)));
+
+        List<String> problems = index.selfCheck();
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0).contains("100"));
+    }
+}
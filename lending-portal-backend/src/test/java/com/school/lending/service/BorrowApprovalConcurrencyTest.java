@@ -0,0 +1,113 @@
+package com.school.lending.service;
+
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import com.school.lending.repo.BorrowRequestRepository;
+import com.school.lending.repo.EquipmentRepository;
+import com.school.lending.repo.UserAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Many threads approve competing requests at once; no item may end up with
+ * more stock approved than it owns.
+ */
+@SpringBootTest
+class BorrowApprovalConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BorrowApprovalConcurrencyTest.class);
+
+    private static final int ITEMS = 20;
+    private static final int STOCK = 10;
+    private static final int REQUESTS_PER_ITEM = 40;
+    private static final int THREADS = 16;
+
+    @Autowired
+    BorrowRequestService borrowService;
+
+    @Autowired
+    BorrowRequestRepository borrowRepo;
+
+    @Autowired
+    EquipmentRepository equipmentRepo;
+
+    @Autowired
+    UserAccountRepository userRepo;
+
+    @Autowired
+    AvailabilityIndex availabilityIndex;
+
+    @Test
+    void concurrentApprovals_neverOverbook() throws Exception {
+        UserAccount student = userRepo.save(new UserAccount("stress-" + System.nanoTime(), "x", UserRole.STUDENT, "Stress"));
+        LocalDate start = LocalDate.now().plusDays(30);
+        LocalDate end = start.plusDays(2);
+
+        List<Equipment> items = new ArrayList<>();
+        List<Long> pendingIds = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            Equipment item = equipmentRepo.save(new Equipment("Stress item " + i, "Stress", "", STOCK, STOCK));
+            items.add(item);
+            for (int r = 0; r < REQUESTS_PER_ITEM; r++) {
+                pendingIds.add(borrowService.createRequest(student, item, start, end, 1).getId());
+            }
+        }
+        Collections.shuffle(pendingIds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger approved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long id : pendingIds) {
+            futures.add(pool.submit(() -> {
+                go.await();
+                BorrowRequest request = borrowRepo.findById(id).orElseThrow();
+                if (borrowService.approveRequest(request, "stress").isPresent()) {
+                    approved.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long began = System.nanoTime();
+        go.countDown();
+        for (Future<?> f : futures) {
+            f.get(60, TimeUnit.SECONDS);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        pool.shutdown();
+
+        log.info("approval stress: {} attempts, {} approved in {} s ({} approvals/sec)",
+                pendingIds.size(), approved.get(), String.format("%.2f", seconds),
+                String.format("%.0f", approved.get() / seconds));
+
+        assertEquals(ITEMS * STOCK, approved.get());
+        for (Equipment item : items) {
+            int held = availabilityIndex.queryReservedQuantity(item.getId(), start, end, null);
+            assertEquals(STOCK, held, "item " + item.getId() + " overbooked or underused");
+            long approvedRows = borrowRepo.findByGearId(item.getId()).stream()
+                    .filter(r -> r.getStatus() == BorrowStatus.APPROVED)
+                    .count();
+            assertEquals(STOCK, approvedRows);
+        }
+        assertTrue(availabilityIndex.selfCheck().isEmpty());
+    }
+}
@@ -1,8 +1,11 @@
 package com.school.lending.service;
 
+import com.school.lending.dto.BatchDecision;
+import com.school.lending.dto.DecisionOutcome;
 import com.school.lending.model.BorrowRequest;
 import com.school.lending.model.BorrowStatus;
 import com.school.lending.model.Equipment;
+import com.school.lending.model.Reservation;
 import com.school.lending.model.UserAccount;
 import com.school.lending.repo.BorrowRequestRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -10,14 +13,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +42,24 @@ class BorrowRequestServiceTest {
     @Mock
     EquipmentService equipmentService;
 
+    @Mock
+    AvailabilityIndex availabilityIndex;
+
+    @Mock
+    ConflictPolicy conflictPolicy;
+
+    @Spy
+    EquipmentLocks equipmentLocks = new EquipmentLocks(4);
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    @Spy
+    CollectionVersions versions = new CollectionVersions();
+
+    @Mock
+    ApplicationEventPublisher events;
+
     @InjectMocks
     BorrowRequestService service;
 
@@ -64,11 +95,275 @@ class BorrowRequestServiceTest {
     @Test
     void isConflicting_withOverlappingBookings() {
         when(equipmentService.findOne(eq.getId())).thenReturn(Optional.of(eq));
-        BorrowRequest existing = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 4);
-        when(borrowRepo.findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(any(), any(), any(), any()))
-                .thenReturn(List.of(existing));
+        when(availabilityIndex.reservedQuantity(eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), null))
+                .thenReturn(4);
+        List<Reservation> overlaps = List.of(new Reservation(1L, eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), 4));
+        when(availabilityIndex.overlapping(eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), null))
+                .thenReturn(overlaps);
+        when(conflictPolicy.reservedDuring(overlaps, LocalDate.now(), LocalDate.now().plusDays(1))).thenReturn(4);
 
         boolean c = service.isConflicting(eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), 2, null);
         assertTrue(c);
     }
+
+    @Test
+    void isConflicting_policyFindsRoomWhenSumDoesNot() {
+        LocalDate mon = LocalDate.now().plusDays(7);
+        when(equipmentService.findOne(eq.getId())).thenReturn(Optional.of(eq));
+        when(availabilityIndex.reservedQuantity(eq.getId(), mon, mon.plusDays(4), null)).thenReturn(8);
+        List<Reservation> overlaps = List.of(
+                new Reservation(1L, eq.getId(), mon, mon.plusDays(1), 4),
+                new Reservation(2L, eq.getId(), mon.plusDays(3), mon.plusDays(4), 4));
+        when(availabilityIndex.overlapping(eq.getId(), mon, mon.plusDays(4), null)).thenReturn(overlaps);
+        when(conflictPolicy.reservedDuring(overlaps, mon, mon.plusDays(4))).thenReturn(4);
+
+        assertFalse(service.isConflicting(eq.getId(), mon, mon.plusDays(4), 1, null));
+    }
+
+    @Test
+    void isConflicting_skipsPolicyWhenSumFits() {
+        when(equipmentService.findOne(eq.getId())).thenReturn(Optional.of(eq));
+        when(availabilityIndex.reservedQuantity(eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), null))
+                .thenReturn(1);
+
+        assertFalse(service.isConflicting(eq.getId(), LocalDate.now(), LocalDate.now().plusDays(1), 2, null));
+        verifyNoInteractions(conflictPolicy);
+    }
+
+    @Test
+    void approveRequest_reservesInIndex() {
+        BorrowRequest pending = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+        pending.setId(13L);
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.save(any())).thenAnswer(i -> i.getArgument(0));
+
+        Optional<BorrowRequest> out = service.approveRequest(pending, "ok");
+        assertTrue(out.isPresent());
+        assertEquals(BorrowStatus.APPROVED, out.get().getStatus());
+        verify(availabilityIndex).reserve(pending);
+        verify(equipmentLocks).withLock(eq(eq.getId()), any());
+    }
+
+    @Test
+    void approveRequest_conflict_leavesRequestPending() {
+        BorrowRequest pending = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 6);
+        pending.setId(15L);
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+
+        assertTrue(service.approveRequest(pending, "ok").isEmpty());
+        assertEquals(BorrowStatus.PENDING, pending.getStatus());
+        verify(availabilityIndex, never()).reserve(any());
+    }
+
+    @Test
+    void approveRequest_checksStockCommittedElsewhere_notTheLocalIndex() {
+        BorrowRequest pending = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 2);
+        pending.setId(16L);
+        List<Reservation> committed = List.of(
+                new Reservation(30L, eq.getId(), pending.getStartDate(), pending.getEndDate(), 4));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.findItemReservations(eq.getId(), AvailabilityIndex.ACTIVE_STATUSES,
+                pending.getStartDate(), pending.getEndDate())).thenReturn(committed);
+        when(conflictPolicy.reservedDuring(committed, pending.getStartDate(), pending.getEndDate())).thenReturn(4);
+
+        assertTrue(service.approveRequest(pending, "ok").isEmpty());
+        assertEquals(BorrowStatus.PENDING, pending.getStatus());
+        verifyNoInteractions(availabilityIndex);
+    }
+
+    @Test
+    void reject_approvedRequest_releasesFromIndex() {
+        BorrowRequest approved = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+        approved.setId(14L);
+        approved.setStatus(BorrowStatus.APPROVED);
+        when(borrowRepo.save(any())).thenAnswer(i -> i.getArgument(0));
+
+        service.reject(approved, "no");
+        verify(availabilityIndex).release(approved);
+        verify(events).publishEvent(new CapacityFreed(eq.getId(), approved.getStartDate(), approved.getEndDate()));
+    }
+
+    @Test
+    void reject_retriesOnVersionConflict_withReloadedRequest() {
+        BorrowRequest stale = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+        stale.setId(16L);
+        BorrowRequest fresh = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+        fresh.setId(16L);
+        fresh.setStatus(BorrowStatus.APPROVED);
+        when(borrowRepo.save(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(BorrowRequest.class, 16L))
+                .thenAnswer(i -> i.getArgument(0));
+        when(borrowRepo.findById(16L)).thenReturn(Optional.of(fresh));
+
+        Optional<BorrowRequest> out = service.reject(stale, "no");
+
+        assertTrue(out.isPresent());
+        assertSame(fresh, out.get());
+        assertEquals(BorrowStatus.REJECTED, fresh.getStatus());
+        verify(availabilityIndex).release(fresh);
+    }
+
+    @Test
+    void reject_givesUpAfterMaxAttempts() {
+        BorrowRequest pending = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+        pending.setId(17L);
+        when(borrowRepo.save(any())).thenThrow(new ObjectOptimisticLockingFailureException(BorrowRequest.class, 17L));
+        when(borrowRepo.findById(17L)).thenAnswer(i -> {
+            BorrowRequest again = new BorrowRequest(u, eq, LocalDate.now(), LocalDate.now().plusDays(1), 1);
+            again.setId(17L);
+            return Optional.of(again);
+        });
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> service.reject(pending, "no"));
+        verify(borrowRepo, times(BorrowRequestService.MAX_ATTEMPTS)).save(any());
+    }
+
+    private static BatchDecision decision(Long id, BatchDecision.Action action) {
+        BatchDecision d = new BatchDecision();
+        d.id = id;
+        d.action = action;
+        return d;
+    }
+
+    @Test
+    void decideBatch_rejectsFirst_thenApprovesOldestFirstWhileStockLasts() {
+        LocalDate start = LocalDate.now().plusDays(3);
+        OffsetDateTime t0 = OffsetDateTime.now().minusHours(3);
+        BorrowRequest older = new BorrowRequest(u, eq, start, start.plusDays(2), 3);
+        older.setId(31L);
+        older.setCreatedAt(t0);
+        BorrowRequest newer = new BorrowRequest(u, eq, start.plusDays(1), start.plusDays(1), 3);
+        newer.setId(32L);
+        newer.setCreatedAt(t0.plusHours(1));
+        BorrowRequest held = new BorrowRequest(u, eq, start, start, 2);
+        held.setId(33L);
+        held.setStatus(BorrowStatus.APPROVED);
+        held.setCreatedAt(t0.plusHours(2));
+        when(borrowRepo.findAllById(any())).thenReturn(List.of(newer, older, held));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        // the rejected booking is flushed before this query, so it no longer shows up
+        when(borrowRepo.findItemReservations(eq(eq.getId()), any(), eq(start), eq(start.plusDays(2))))
+                .thenReturn(List.of());
+
+        List<DecisionOutcome> out = service.decideBatch(List.of(
+                decision(32L, BatchDecision.Action.APPROVE),
+                decision(31L, BatchDecision.Action.APPROVE),
+                decision(33L, BatchDecision.Action.REJECT),
+                decision(99L, BatchDecision.Action.APPROVE),
+                decision(32L, BatchDecision.Action.REJECT)));
+
+        assertEquals(List.of(
+                new DecisionOutcome(32L, DecisionOutcome.Result.NO_CAPACITY, BorrowStatus.PENDING),
+                new DecisionOutcome(31L, DecisionOutcome.Result.APPLIED, BorrowStatus.APPROVED),
+                new DecisionOutcome(33L, DecisionOutcome.Result.APPLIED, BorrowStatus.REJECTED),
+                new DecisionOutcome(99L, DecisionOutcome.Result.NOT_FOUND, null)), out);
+        verify(availabilityIndex).release(held);
+        verify(availabilityIndex).reserve(older);
+        verify(availabilityIndex, never()).reserve(newer);
+        verify(equipmentService, times(1)).lockForBooking(eq.getId());
+        verify(borrowRepo, times(1)).findItemReservations(any(), any(), any(), any());
+        verify(events, times(2)).publishEvent(any(RequestStatusChanged.class));
+    }
+
+    @Test
+    void allocatePending_maxFulfilled_servesSmallBookingsFirst_andNotesTheRest() {
+        LocalDate start = LocalDate.now().plusDays(2);
+        BorrowRequest big = new BorrowRequest(u, eq, start, start.plusDays(4), 4);
+        big.setId(41L);
+        big.setCreatedAt(OffsetDateTime.now().minusDays(2));
+        BorrowRequest small = new BorrowRequest(u, eq, start.plusDays(1), start.plusDays(1), 1);
+        small.setId(42L);
+        BorrowRequest smallToo = new BorrowRequest(u, eq, start.plusDays(2), start.plusDays(3), 2);
+        smallToo.setId(43L);
+        BorrowRequest late = new BorrowRequest(u, eq, LocalDate.now().minusDays(1), LocalDate.now(), 1);
+        late.setId(44L);
+        when(borrowRepo.findAllById(any())).thenReturn(List.of(big, small, smallToo, late));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.findItemReservations(eq(eq.getId()), any(), eq(start), eq(start.plusDays(4))))
+                .thenReturn(List.of());
+
+        List<DecisionOutcome> out = service.allocatePending(eq.getId(), List.of(41L, 42L, 43L, 44L),
+                AllocationPolicy.MAX_FULFILLED);
+
+        assertEquals(4, out.size());
+        assertEquals(BorrowStatus.APPROVED, small.getStatus());
+        assertEquals(BorrowStatus.APPROVED, smallToo.getStatus());
+        assertEquals(BorrowRequestService.AUTO_APPROVED_NOTE, small.getDecisionNote());
+        // the oldest request no longer fits once the two small ones are placed
+        assertEquals(BorrowStatus.PENDING, big.getStatus());
+        assertEquals(BorrowRequestService.NO_CAPACITY_NOTE, big.getAllocationNote());
+        assertEquals(BorrowStatus.PENDING, late.getStatus());
+        assertEquals(BorrowRequestService.STARTED_NOTE, late.getAllocationNote());
+        verify(events, times(2)).publishEvent(any(RequestStatusChanged.class));
+    }
+
+    @Test
+    void allocatePending_firstCome_servesOldestFirst() {
+        LocalDate start = LocalDate.now().plusDays(2);
+        BorrowRequest big = new BorrowRequest(u, eq, start, start.plusDays(4), 4);
+        big.setId(41L);
+        big.setCreatedAt(OffsetDateTime.now().minusDays(2));
+        BorrowRequest small = new BorrowRequest(u, eq, start.plusDays(1), start.plusDays(1), 2);
+        small.setId(42L);
+        when(borrowRepo.findAllById(any())).thenReturn(List.of(small, big));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.findItemReservations(eq(eq.getId()), any(), eq(start), eq(start.plusDays(4))))
+                .thenReturn(List.of());
+
+        service.allocatePending(eq.getId(), List.of(41L, 42L), AllocationPolicy.FIRST_COME);
+
+        assertEquals(BorrowStatus.APPROVED, big.getStatus());
+        assertEquals(BorrowStatus.PENDING, small.getStatus());
+        assertEquals(BorrowRequestService.NO_CAPACITY_NOTE, small.getAllocationNote());
+    }
+
+    @Test
+    void promoteWaitlisted_promotesOldestEntriesThatFit_withinFreedRange() {
+        LocalDate start = LocalDate.now().plusDays(5);
+        BorrowRequest first = new BorrowRequest(u, eq, start, start.plusDays(1), 3);
+        first.setId(51L);
+        first.setStatus(BorrowStatus.WAITLISTED);
+        first.setCreatedAt(OffsetDateTime.now().minusHours(2));
+        BorrowRequest second = new BorrowRequest(u, eq, start.plusDays(1), start.plusDays(2), 3);
+        second.setId(52L);
+        second.setStatus(BorrowStatus.WAITLISTED);
+        second.setCreatedAt(OffsetDateTime.now().minusHours(1));
+        BorrowRequest third = new BorrowRequest(u, eq, start.plusDays(2), start.plusDays(2), 2);
+        third.setId(53L);
+        third.setStatus(BorrowStatus.WAITLISTED);
+        when(borrowRepo.findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                eq.getId(), List.of(BorrowStatus.WAITLISTED), start.plusDays(3), start))
+                .thenReturn(List.of(third, second, first));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.findItemReservations(eq(eq.getId()), any(), eq(start), eq(start.plusDays(2))))
+                .thenReturn(List.of());
+
+        List<BorrowRequest> promoted = service.promoteWaitlisted(eq.getId(), start, start.plusDays(3),
+                BorrowStatus.PENDING);
+
+        // the second one would need 6 of 5 units on its first day once the first is counted
+        assertEquals(List.of(first, third), promoted);
+        assertEquals(BorrowStatus.PENDING, first.getStatus());
+        assertEquals(BorrowStatus.WAITLISTED, second.getStatus());
+        assertNull(first.getAllocationNote());
+        verify(availabilityIndex, never()).reserve(any());
+        verify(events, times(2)).publishEvent(any(RequestStatusChanged.class));
+    }
+
+    @Test
+    void promoteWaitlisted_toApproved_reservesStock() {
+        LocalDate start = LocalDate.now().plusDays(5);
+        BorrowRequest waiting = new BorrowRequest(u, eq, start, start, 1);
+        waiting.setId(54L);
+        waiting.setStatus(BorrowStatus.WAITLISTED);
+        when(borrowRepo.findByGearIdAndStatusInAndStartDateLessThanEqualAndEndDateGreaterThanEqual(
+                eq(eq.getId()), any(), any(), any())).thenReturn(List.of(waiting));
+        when(equipmentService.lockForBooking(eq.getId())).thenReturn(Optional.of(eq));
+        when(borrowRepo.findItemReservations(eq(eq.getId()), any(), eq(start), eq(start))).thenReturn(List.of());
+
+        service.promoteWaitlisted(eq.getId(), null, null, BorrowStatus.APPROVED);
+
+        assertEquals(BorrowStatus.APPROVED, waiting.getStatus());
+        verify(availabilityIndex).reserve(waiting);
+    }
 }
@@ -0,0 +1,100 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapacityProfileTest {
+
+    LocalDate mon = LocalDate.of(2025, 11, 10);
+
+    @Test
+    void peakPolicy_disjointBookingsDoNotAddUp() {
+        CapacityProfile profile = new CapacityProfile(3, mon, mon.plusDays(9), List.of(
+                new Reservation(1L, 1L, mon, mon.plusDays(1), 3)), new PeakUsageConflictPolicy());
+
+        assertFalse(profile.fits(mon.plusDays(1), mon.plusDays(2), 1));
+        assertTrue(profile.fits(mon.plusDays(2), mon.plusDays(4), 3));
+        profile.add(new Reservation(2L, 1L, mon.plusDays(3), mon.plusDays(4), 3));
+        assertTrue(profile.fits(mon.plusDays(5), mon.plusDays(9), 3));
+        assertFalse(profile.fits(mon.plusDays(4), mon.plusDays(5), 1));
+    }
+
+    @Test
+    void overlapSumPolicy_countsEveryOverlappingBookingInFull() {
+        CapacityProfile profile = new CapacityProfile(3, mon, mon.plusDays(9), List.of(
+                new Reservation(1L, 1L, mon, mon, 2),
+                new Reservation(2L, 1L, mon.plusDays(2), mon.plusDays(2), 1)), new OverlapSumConflictPolicy());
+
+        assertFalse(profile.fits(mon, mon.plusDays(2), 1));
+        assertTrue(profile.fits(mon.plusDays(1), mon.plusDays(2), 2));
+        assertTrue(profile.fits(mon.plusDays(3), mon.plusDays(9), 3));
+    }
+
+    @Test
+    void bookingsReachingOutsideTheProfile_countOnTheDaysInside() {
+        CapacityProfile profile = new CapacityProfile(2, mon, mon.plusDays(4), List.of(
+                new Reservation(1L, 1L, mon.minusDays(5), mon, 1),
+                new Reservation(2L, 1L, mon.plusDays(4), mon.plusDays(20), 1)), new OverlapSumConflictPolicy());
+
+        assertFalse(profile.fits(mon, mon.plusDays(4), 1));
+        assertTrue(profile.fits(mon.plusDays(1), mon.plusDays(3), 2));
+        assertTrue(profile.fits(mon, mon.plusDays(3), 1));
+    }
+
+    @Test
+    void matchesThePolicyOnRandomGrants() {
+        for (ConflictPolicy policy : List.of(new PeakUsageConflictPolicy(), new OverlapSumConflictPolicy())) {
+            Random rnd = new Random(7);
+            LocalDate to = mon.plusDays(60);
+            CapacityProfile profile = new CapacityProfile(6, mon, to, List.of(), policy);
+            List<Reservation> granted = new ArrayList<>();
+            for (long i = 0; i < 2_000; i++) {
+                LocalDate start = mon.plusDays(rnd.nextInt(55));
+                LocalDate end = start.plusDays(rnd.nextInt(6));
+                int qty = 1 + rnd.nextInt(3);
+                List<Reservation> overlapping = granted.stream().filter(r -> r.overlaps(start, end)).toList();
+                boolean expected = policy.reservedDuring(overlapping, start, end) + qty <= 6;
+
+                assertEquals(expected, profile.fits(start, end, qty), policy.getClass().getSimpleName() + " #" + i);
+                if (expected) {
+                    Reservation booking = new Reservation(i, 1L, start, end, qty);
+                    granted.add(booking);
+                    profile.add(booking);
+                }
+            }
+        }
+    }
+
+    @Test
+    void benchmark_grantsAtTermVolume() {
+        int requests = 50_000;
+        for (ConflictPolicy policy : List.of(new PeakUsageConflictPolicy(), new OverlapSumConflictPolicy())) {
+            Random rnd = new Random(42);
+            CapacityProfile profile = new CapacityProfile(400, mon, mon.plusDays(400), List.of(), policy);
+            long began = System.nanoTime();
+            int granted = 0;
+            for (long i = 0; i < requests; i++) {
+                LocalDate start = mon.plusDays(rnd.nextInt(365));
+                LocalDate end = start.plusDays(rnd.nextInt(14));
+                int qty = 1 + rnd.nextInt(3);
+                if (profile.fits(start, end, qty)) {
+                    profile.add(new Reservation(i, 1L, start, end, qty));
+                    granted++;
+                }
+            }
+            long elapsedMs = (System.nanoTime() - began) / 1_000_000;
+            System.out.printf("capacity profile (%s): %d requests, %d granted in %d ms%n",
+                    policy.getClass().getSimpleName(), requests, granted, elapsedMs);
+
+            assertTrue(granted > 0);
+            assertTrue(elapsedMs < 2_000, "capacity checks too slow: " + elapsedMs + " ms");
+        }
+    }
+}
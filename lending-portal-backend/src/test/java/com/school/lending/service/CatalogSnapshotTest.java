@@ -0,0 +1,90 @@
+package com.school.lending.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.school.lending.dto.CursorPage;
+import com.school.lending.model.Equipment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotTest {
+
+    @Mock
+    EquipmentService equipmentService;
+
+    @Mock
+    CollectionVersions versions;
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    CatalogSnapshot snapshot;
+
+    @BeforeEach
+    void setup() {
+        snapshot = new CatalogSnapshot(equipmentService, versions, mapper, 10, 512);
+    }
+
+    private static List<Equipment> items(int n) {
+        List<Equipment> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Equipment eq = new Equipment("Item " + i, "Photo", "ok", 5, 5);
+            eq.setId((long) i + 1);
+            out.add(eq);
+        }
+        return out;
+    }
+
+    @Test
+    void sameVersion_servesStoredBytes_withoutQuerying() {
+        when(versions.equipment()).thenReturn(1L);
+        when(equipmentService.listPage("Photo", false, null, 50)).thenReturn(new CursorPage<>(items(2), null));
+
+        CatalogSnapshot.View first = snapshot.view("Photo", false, null, 50);
+        CatalogSnapshot.View second = snapshot.view("Photo", false, null, 50);
+
+        assertSame(first, second);
+        verify(equipmentService, times(1)).listPage("Photo", false, null, 50);
+        assertTrue(new String(first.json()).contains("\"itemName\":\"Item 0\""));
+        assertNull(first.gzip());
+    }
+
+    @Test
+    void catalogChange_rebuildsViewOnNextRequest() {
+        when(versions.equipment()).thenReturn(1L, 2L);
+        when(equipmentService.listPage(null, true, null, 50))
+                .thenReturn(new CursorPage<>(items(1), null), new CursorPage<>(items(2), "c"));
+
+        snapshot.view(null, true, null, 50);
+        CatalogSnapshot.View rebuilt = snapshot.view(null, true, null, 50);
+
+        assertEquals("c", rebuilt.nextCursor());
+        assertEquals(2, snapshot.getRebuilds());
+    }
+
+    @Test
+    void largeViews_carryGzipOfTheSameJson() throws Exception {
+        when(versions.equipment()).thenReturn(1L);
+        when(equipmentService.listPage(null, false, null, 50)).thenReturn(new CursorPage<>(items(50), null));
+
+        CatalogSnapshot.View view = snapshot.view(null, false, null, 50);
+
+        assertNotNull(view.gzip());
+        assertTrue(view.gzip().length < view.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(view.gzip()))) {
+            assertArrayEquals(view.json(), in.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.school.lending.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CollectionVersionsTest {
+
+    @Test
+    void etag_isStableForTheSameVariant() {
+        assertEquals(CollectionVersions.etag("7", 3L, "PENDING", null),
+                CollectionVersions.etag("7", 3L, "PENDING", null));
+    }
+
+    @Test
+    void etag_differsPerCallerAndFilter() {
+        String mine = CollectionVersions.etag("7", 3L, "PENDING");
+        assertNotEquals(mine, CollectionVersions.etag("7", 4L, "PENDING"));
+        assertNotEquals(mine, CollectionVersions.etag("7", 3L, "APPROVED"));
+        assertNotEquals(mine, CollectionVersions.etag("8", 3L, "PENDING"));
+    }
+
+    @Test
+    void etag_doesNotConfuseWhereOneInputEndsAndTheNextBegins() {
+        assertNotEquals(CollectionVersions.etag("7", "ab", "c"), CollectionVersions.etag("7", "a", "bc"));
+        assertNotEquals(CollectionVersions.etag("7", "null"), CollectionVersions.etag("7", (Object) null, ""));
+    }
+}
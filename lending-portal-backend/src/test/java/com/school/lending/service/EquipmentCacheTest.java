@@ -0,0 +1,67 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Equipment;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EquipmentCacheTest {
+
+    private static Equipment item(long id, int available) {
+        Equipment eq = new Equipment("Item " + id, "cat", "ok", 5, available);
+        eq.setId(id);
+        return eq;
+    }
+
+    @Test
+    void loadThatRacedAnInvalidation_isNotKept() {
+        EquipmentCache cache = new EquipmentCache(10, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        // the stock changes while the old row is being read from the database
+        cache.row(1L, id -> {
+            loads.incrementAndGet();
+            cache.stockChanged(id);
+            return Optional.of(item(id, 5));
+        });
+        cache.row(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(item(id, 4));
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(4, cache.row(1L, id -> Optional.empty()).orElseThrow().getAvailableQuantity());
+    }
+
+    @Test
+    void sizeStaysWithinBounds() {
+        EquipmentCache cache = new EquipmentCache(3, 2);
+        for (long id = 1; id <= 10; id++) {
+            cache.row(id, i -> Optional.of(item(i, 1)));
+            long after = id;
+            cache.query(new EquipmentCache.CatalogQuery(null, false, after, 5),
+                    () -> List.of(item(after, 1)), ids -> List.of());
+        }
+
+        assertTrue(cache.getRowCount() <= 3);
+        assertTrue(cache.getQueryCount() <= 2);
+    }
+
+    @Test
+    void queryHit_reloadsEvictedRowsById() {
+        EquipmentCache cache = new EquipmentCache(10, 10);
+        EquipmentCache.CatalogQuery all = new EquipmentCache.CatalogQuery(null, false, null, 0);
+        cache.query(all, () -> List.of(item(1, 5), item(2, 5)), ids -> fail("not expected"));
+
+        cache.stockChanged(2L);
+        List<Equipment> again = cache.query(all, () -> fail("query should be cached"),
+                ids -> List.of(item(2, 3)));
+
+        assertEquals(List.of(1L, 2L), again.stream().map(Equipment::getId).toList());
+        assertEquals(3, again.get(1).getAvailableQuantity());
+    }
+}
@@ -7,12 +7,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,6 +28,15 @@ class EquipmentServiceTest {
     @Mock
     EquipmentRepository repo;
 
+    @Spy
+    EquipmentCache cache = new EquipmentCache(100, 100);
+
+    @Spy
+    CollectionVersions versions = new CollectionVersions();
+
+    @Mock
+    ApplicationEventPublisher events;
+
     @InjectMocks
     EquipmentService service;
 
@@ -41,23 +56,95 @@ class EquipmentServiceTest {
     }
 
     @Test
-    void handOut_decreases_and_saves() {
-        when(repo.findById(eq.getId())).thenReturn(Optional.of(eq));
+    void handOut_usesSingleConditionalUpdate() {
+        when(repo.decrementAvailable(eq.getId(), 2)).thenReturn(1);
+
+        assertTrue(service.handOut(eq.getId(), 2));
+        verify(events).publishEvent(new EquipmentStockChanged(eq.getId()));
+        verify(repo, never()).findById(any());
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void bringBack_reportsWhenNothingChanged() {
+        when(repo.incrementAvailable(eq.getId(), 10)).thenReturn(0);
+
+        assertFalse(service.bringBack(eq.getId(), 10));
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void findOne_servesRepeatReadsFromCache_asCopies() {
+        when(repo.findById(10L)).thenReturn(Optional.of(eq));
+
+        Equipment first = service.findOne(10L).orElseThrow();
+        Equipment second = service.findOne(10L).orElseThrow();
+
+        verify(repo, times(1)).findById(10L);
+        assertNotSame(first, second);
+        first.setItemName("changed by caller");
+        assertEquals("cam", service.findOne(10L).orElseThrow().getItemName());
+    }
+
+    @Test
+    void handOut_evictsCachedRow() {
+        when(repo.findById(10L)).thenReturn(Optional.of(eq));
+        when(repo.decrementAvailable(10L, 1)).thenReturn(1);
+
+        service.findOne(10L);
+        service.handOut(10L, 1);
+        service.findOne(10L);
+
+        verify(repo, times(2)).findById(10L);
+    }
+
+    @Test
+    void listPage_isCached_andStockChangeOnlyDropsAvailableOnlyQueries() {
+        PageRequest firstPage = PageRequest.of(0, 11);
+        when(repo.findPage(null, true, null, firstPage)).thenReturn(List.of(eq));
+        when(repo.findPage(null, false, null, firstPage)).thenReturn(List.of(eq));
+        when(repo.incrementAvailable(10L, 1)).thenReturn(1);
+
+        service.listPage(null, true, null, 10);
+        service.listPage(null, false, null, 10);
+        service.listPage(null, true, null, 10);
+        service.listPage(null, false, null, 10);
+        verify(repo, times(1)).findPage(null, true, null, firstPage);
+        verify(repo, times(1)).findPage(null, false, null, firstPage);
+
+        service.bringBack(10L, 1);
+        service.listPage(null, true, null, 10);
+        service.listPage(null, false, null, 10);
+
+        verify(repo, times(2)).findPage(null, true, null, firstPage);
+        verify(repo, times(1)).findPage(null, false, null, firstPage);
+        assertEquals(3, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void saveThing_dropsEveryCachedQuery() {
+        when(repo.findPage("photo", false, null, PageRequest.of(0, 11))).thenReturn(List.of(eq));
         when(repo.save(any())).thenAnswer(i -> i.getArgument(0));
 
-        service.handOut(eq.getId(), 2);
-        assertEquals(Math.max(0, 6 - 2), eq.getAvailableQuantity());
-        verify(repo).save(eq);
+        service.listPage("Photo", false, null, 10);
+        service.saveThing(eq);
+        service.listPage("PHOTO", false, null, 10);
+
+        verify(repo, times(2)).findPage("photo", false, null, PageRequest.of(0, 11));
     }
 
     @Test
-    void bringBack_increases_and_caps() {
-        eq.setAvailableQuantity(4);
-        when(repo.findById(eq.getId())).thenReturn(Optional.of(eq));
+    void saveThing_raisingTotal_publishesCapacityFreed() {
+        Equipment stored = new Equipment("cam", "photo", "ok", 5, 5);
+        stored.setId(10L);
+        when(repo.findById(10L)).thenReturn(Optional.of(stored));
         when(repo.save(any())).thenAnswer(i -> i.getArgument(0));
+        Equipment edited = new Equipment("cam", "photo", "ok", 7, 7);
+        edited.setId(10L);
+
+        service.saveThing(edited);
 
-        service.bringBack(eq.getId(), 10);
-        assertEquals(eq.getTotalQuantity(), eq.getAvailableQuantity());
-        verify(repo).save(eq);
+        verify(events).publishEvent(new CapacityFreed(10L, null, null));
     }
 }
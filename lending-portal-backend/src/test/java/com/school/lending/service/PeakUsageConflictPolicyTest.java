@@ -0,0 +1,71 @@
+package com.school.lending.service;
+
+import com.school.lending.model.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeakUsageConflictPolicyTest {
+
+    PeakUsageConflictPolicy policy = new PeakUsageConflictPolicy();
+
+    LocalDate mon = LocalDate.of(2025, 11, 10);
+
+    @Test
+    void disjointBookings_doNotAddUp() {
+        List<Reservation> overlaps = List.of(
+                new Reservation(1L, 1L, mon, mon.plusDays(1), 3),
+                new Reservation(2L, 1L, mon.plusDays(3), mon.plusDays(4), 2));
+        assertEquals(3, policy.reservedDuring(overlaps, mon, mon.plusDays(4)));
+    }
+
+    @Test
+    void overlappingBookings_stackOnSharedDays() {
+        List<Reservation> overlaps = List.of(
+                new Reservation(1L, 1L, mon, mon.plusDays(2), 3),
+                new Reservation(2L, 1L, mon.plusDays(2), mon.plusDays(4), 2),
+                new Reservation(3L, 1L, mon.plusDays(3), mon.plusDays(3), 1));
+        assertEquals(5, policy.reservedDuring(overlaps, mon, mon.plusDays(4)));
+        assertEquals(3, policy.reservedDuring(overlaps, mon.plusDays(3), mon.plusDays(4)));
+    }
+
+    @Test
+    void bookingEndingDayBeforeAnotherStarts_isNotCountedTwice() {
+        List<Reservation> overlaps = List.of(
+                new Reservation(1L, 1L, mon, mon, 4),
+                new Reservation(2L, 1L, mon.plusDays(1), mon.plusDays(1), 4));
+        assertEquals(4, policy.reservedDuring(overlaps, mon, mon.plusDays(1)));
+    }
+
+    @Test
+    void benchmark_thousandsOfBookings() {
+        Random rnd = new Random(42);
+        List<Reservation> bookings = new ArrayList<>();
+        for (long i = 0; i < 5000; i++) {
+            LocalDate start = mon.plusDays(rnd.nextInt(365));
+            bookings.add(new Reservation(i, 1L, start, start.plusDays(rnd.nextInt(14)), 1 + rnd.nextInt(3)));
+        }
+        ReservationLedger ledger = new ReservationLedger(mon, 400);
+        bookings.forEach(ledger::add);
+
+        int queries = 10_000;
+        long checksum = 0;
+        long began = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            LocalDate start = mon.plusDays(rnd.nextInt(350));
+            LocalDate end = start.plusDays(rnd.nextInt(14));
+            checksum += policy.reservedDuring(ledger.overlapping(start, end, null), start, end);
+        }
+        long elapsedMs = (System.nanoTime() - began) / 1_000_000;
+        System.out.printf("peak policy: %d queries over %d bookings in %d ms (%.0f queries/s)%n",
+                queries, bookings.size(), elapsedMs, queries * 1000.0 / Math.max(1, elapsedMs));
+
+        assertTrue(checksum > 0);
+        assertTrue(elapsedMs < 5_000, "peak conflict checks too slow: " + elapsedMs + " ms");
+    }
+}
@@ -0,0 +1,93 @@
+package com.school.lending.service;
+
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.model.BorrowRequest;
+import com.school.lending.model.Equipment;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the pending allocator over 30k pending requests spread across 20
+ * items, about a term's worth of demand, and prints how long it took.
+ *
+ * <p>Slow, so only runs with {@code -Dbench=true}.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "app.allocation.enabled=true",
+        "app.allocation.initial-delay-ms=86400000"})
+@EnabledIfSystemProperty(named = "bench", matches = "true")
+class PendingAllocatorBenchmarkTest {
+
+    private static final int ITEMS = 20;
+    private static final int REQUESTS_PER_ITEM = 1_500;
+    private static final int BATCH = 50;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager txManager;
+
+    @Autowired
+    PendingAllocator allocator;
+
+    @Test
+    void allocatesATermOfPendingRequests() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        List<Long> itemIds = tx.execute(status -> {
+            UserAccount user = new UserAccount("bench-" + System.nanoTime(), "x", UserRole.STUDENT, "Bench");
+            em.persist(user);
+            Random rnd = new Random(42);
+            LocalDate today = LocalDate.now();
+            List<Long> ids = new ArrayList<>();
+            for (int item = 0; item < ITEMS; item++) {
+                Equipment eq = new Equipment("Bench item " + item, "Bench", "", 40, 40);
+                em.persist(eq);
+                ids.add(eq.getId());
+                for (int i = 0; i < REQUESTS_PER_ITEM; i++) {
+                    LocalDate start = today.plusDays(1 + rnd.nextInt(365));
+                    em.persist(new BorrowRequest(user, eq, start, start.plusDays(rnd.nextInt(14)), 1 + rnd.nextInt(3)));
+                    if ((i + 1) % BATCH == 0) {
+                        em.flush();
+                        em.clear();
+                        user = em.getReference(UserAccount.class, user.getId());
+                        eq = em.getReference(Equipment.class, eq.getId());
+                    }
+                }
+            }
+            return ids;
+        });
+
+        long began = System.nanoTime();
+        Map<DecisionOutcome.Result, Integer> counts = allocator.run();
+        long elapsedMs = (System.nanoTime() - began) / 1_000_000;
+        int decided = counts.values().stream().mapToInt(Integer::intValue).sum();
+        System.out.printf("pending allocation: %d requests over %d items in %d ms, %s%n",
+                decided, ITEMS, elapsedMs, counts);
+
+        tx.executeWithoutResult(status -> {
+            em.createQuery("delete from BorrowRequest r where r.gear.id in :ids").setParameter("ids", itemIds).executeUpdate();
+            em.createQuery("delete from Equipment e where e.id in :ids").setParameter("ids", itemIds).executeUpdate();
+        });
+        assertTrue(decided >= ITEMS * REQUESTS_PER_ITEM);
+        assertTrue(counts.getOrDefault(DecisionOutcome.Result.APPLIED, 0) > 0);
+        assertTrue(elapsedMs < 60_000, "pending allocation too slow: " + elapsedMs + " ms");
+    }
+}
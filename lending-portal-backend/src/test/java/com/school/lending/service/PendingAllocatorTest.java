@@ -0,0 +1,50 @@
+package com.school.lending.service;
+
+import com.school.lending.dto.DecisionOutcome;
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.RequestRef;
+import com.school.lending.repo.BorrowRequestRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PendingAllocatorTest {
+
+    @Mock
+    BorrowRequestRepository borrowRepo;
+
+    @Mock
+    BorrowRequestService borrowService;
+
+    @Test
+    void run_allocatesEachItemGroupOnce_andCountsOutcomes() {
+        when(borrowRepo.findRefsByStatus(BorrowStatus.PENDING)).thenReturn(List.of(
+                new RequestRef(10L, 1L), new RequestRef(11L, 2L), new RequestRef(12L, 1L)));
+        when(borrowService.allocatePending(1L, List.of(10L, 12L), AllocationPolicy.SHORTEST_FIRST)).thenReturn(List.of(
+                new DecisionOutcome(10L, DecisionOutcome.Result.APPLIED, BorrowStatus.APPROVED),
+                new DecisionOutcome(12L, DecisionOutcome.Result.NO_CAPACITY, BorrowStatus.PENDING)));
+        when(borrowService.allocatePending(2L, List.of(11L), AllocationPolicy.SHORTEST_FIRST)).thenReturn(List.of(
+                new DecisionOutcome(11L, DecisionOutcome.Result.APPLIED, BorrowStatus.APPROVED)));
+
+        PendingAllocator allocator = new PendingAllocator(borrowRepo, borrowService, "shortest-first");
+        Map<DecisionOutcome.Result, Integer> counts = allocator.run();
+
+        assertEquals(Map.of(DecisionOutcome.Result.APPLIED, 2, DecisionOutcome.Result.NO_CAPACITY, 1), counts);
+        verify(borrowService).allocatePending(1L, List.of(10L, 12L), AllocationPolicy.SHORTEST_FIRST);
+    }
+
+    @Test
+    void unknownPolicy_isRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PendingAllocator(borrowRepo, borrowService, "random"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.school.lending.service;
+
+import com.school.lending.model.RefreshToken;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import com.school.lending.repo.RefreshTokenRepository;
+import com.school.lending.repo.UserAccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    RefreshTokenRepository tokenRepository;
+
+    @Mock
+    UserAccountRepository userRepository;
+
+    RefreshTokenService service;
+    UserAccount user;
+
+    @BeforeEach
+    void setup() {
+        service = new RefreshTokenService(tokenRepository, userRepository, 14);
+        user = new UserAccount("k", "enc", UserRole.STUDENT, "K");
+        user.setId(7L);
+    }
+
+    @Test
+    void issue_storesOnlyTheHash() {
+        String raw = service.issue(user);
+
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(tokenRepository).save(saved.capture());
+        assertNotEquals(raw, saved.getValue().getTokenHash());
+        assertEquals(RefreshTokenService.hash(raw), saved.getValue().getTokenHash());
+        assertEquals(7L, saved.getValue().getUserId().longValue());
+    }
+
+    @Test
+    void rotate_consumesToken_andIssuesSuccessorInSameFamily() {
+        RefreshToken current = new RefreshToken(RefreshTokenService.hash("old"), "fam-1", 7L,
+                Instant.now().plusSeconds(3600));
+        current.setId(1L);
+        when(tokenRepository.findByTokenHash(RefreshTokenService.hash("old"))).thenReturn(Optional.of(current));
+        when(tokenRepository.markUsed(eq(1L), any())).thenReturn(1);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+
+        Optional<RefreshTokenService.Rotation> out = service.rotate("old");
+
+        assertTrue(out.isPresent());
+        assertSame(user, out.get().user());
+        assertNotEquals("old", out.get().refreshToken());
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(tokenRepository).save(saved.capture());
+        assertEquals("fam-1", saved.getValue().getFamilyId());
+        verify(tokenRepository, never()).revokeFamily(any());
+    }
+
+    @Test
+    void rotate_reusedToken_revokesFamily() {
+        RefreshToken used = new RefreshToken(RefreshTokenService.hash("old"), "fam-1", 7L,
+                Instant.now().plusSeconds(3600));
+        used.setId(1L);
+        used.setUsedAt(Instant.now().minusSeconds(10));
+        when(tokenRepository.findByTokenHash(RefreshTokenService.hash("old"))).thenReturn(Optional.of(used));
+
+        assertTrue(service.rotate("old").isEmpty());
+        verify(tokenRepository).revokeFamily("fam-1");
+        verify(tokenRepository, never()).save(any());
+    }
+
+    @Test
+    void rotate_lostRace_revokesFamily() {
+        RefreshToken current = new RefreshToken(RefreshTokenService.hash("old"), "fam-1", 7L,
+                Instant.now().plusSeconds(3600));
+        current.setId(1L);
+        when(tokenRepository.findByTokenHash(RefreshTokenService.hash("old"))).thenReturn(Optional.of(current));
+        when(tokenRepository.markUsed(eq(1L), any())).thenReturn(0);
+
+        assertTrue(service.rotate("old").isEmpty());
+        verify(tokenRepository).revokeFamily("fam-1");
+    }
+
+    @Test
+    void rotate_expiredOrRevoked_isRejected() {
+        RefreshToken expired = new RefreshToken(RefreshTokenService.hash("a"), "fam-1", 7L,
+                Instant.now().minusSeconds(1));
+        RefreshToken revoked = new RefreshToken(RefreshTokenService.hash("b"), "fam-2", 7L,
+                Instant.now().plusSeconds(3600));
+        revoked.setRevoked(true);
+        when(tokenRepository.findByTokenHash(RefreshTokenService.hash("a"))).thenReturn(Optional.of(expired));
+        when(tokenRepository.findByTokenHash(RefreshTokenService.hash("b"))).thenReturn(Optional.of(revoked));
+
+        assertTrue(service.rotate("a").isEmpty());
+        assertTrue(service.rotate("b").isEmpty());
+        assertTrue(service.rotate(null).isEmpty());
+        verify(tokenRepository, never()).markUsed(any(), any());
+    }
+}
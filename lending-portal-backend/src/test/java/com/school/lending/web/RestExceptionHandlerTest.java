@@ -31,4 +31,13 @@ class RestExceptionHandlerTest {
         assertEquals(500, body.get("status"));
         assertEquals("internal error", body.get("message"));
     }
+
+    @Test
+    void handleOptimisticLock_returnsConflict() {
+        ResponseEntity<Object> resp = handler.handleOptimisticLock(
+                new org.springframework.orm.ObjectOptimisticLockingFailureException(Object.class, 1L));
+        assertEquals(HttpStatus.CONFLICT, resp.getStatusCode());
+        var body = (java.util.Map<?,?>) resp.getBody();
+        assertEquals(409, body.get("status"));
+    }
 }
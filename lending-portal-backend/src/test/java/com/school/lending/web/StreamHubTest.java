@@ -0,0 +1,179 @@
+package com.school.lending.web;
+
+import com.school.lending.model.BorrowStatus;
+import com.school.lending.model.UserAccount;
+import com.school.lending.model.UserRole;
+import com.school.lending.repo.EquipmentRepository;
+import com.school.lending.service.EquipmentStockChanged;
+import com.school.lending.service.RequestStatusChanged;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamHubTest {
+
+    EquipmentRepository equipmentRepo = mock(EquipmentRepository.class);
+
+    // opened by default; a test closes it to hold the sender on its first write
+    CountDownLatch gate = new CountDownLatch(0);
+
+    List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    StreamHub hub = new StreamHub(equipmentRepo, 2, 8, 60_000, 1) {
+        @Override
+        SseEmitter newEmitter() {
+            RecordingEmitter emitter = new RecordingEmitter(gate);
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        hub.shutdown();
+    }
+
+    /**
+     * Emitter that keeps what was sent to it instead of writing to a response.
+     */
+    static class RecordingEmitter extends SseEmitter {
+
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch gate;
+        volatile boolean completed;
+
+        RecordingEmitter(CountDownLatch gate) {
+            super(60_000L);
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            sent.add(builder.build().stream().map(d -> String.valueOf(d.getData())).collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        List<String> named(String event) {
+            return sent.stream().filter(s -> s.contains("event:" + event + "\n")).toList();
+        }
+    }
+
+    private static UserAccount user(long id, UserRole role) {
+        UserAccount u = new UserAccount("u" + id, "x", role, "U" + id);
+        u.setId(id);
+        return u;
+    }
+
+    private static UserAccount user(long id) {
+        return user(id, UserRole.STUDENT);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void connectionsBeyondCap_areRefusedWith503AndRetryAfter() {
+        assertNotNull(hub.open(user(1)));
+        assertNotNull(hub.open(user(2)));
+
+        StreamHub.StreamBusyException ex = assertThrows(StreamHub.StreamBusyException.class, () -> hub.open(user(3)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        assertEquals("5", ex.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(2, hub.getConnectionCount());
+    }
+
+    @Test
+    void heartbeatsCoalesce_soAnIdleSlowClientIsNotDropped() {
+        hub.open(user(1));
+        for (int i = 0; i < 100; i++) {
+            hub.heartbeat();
+        }
+        assertEquals(0, hub.getDroppedCount());
+        assertEquals(1, hub.getConnectionCount());
+    }
+
+    @Test
+    void studentConnection_neverReceivesOtherUsersRequestEvents() throws Exception {
+        hub.open(user(1));
+        hub.open(user(9, UserRole.STAFF));
+        RecordingEmitter student = emitters.get(0);
+        RecordingEmitter staff = emitters.get(1);
+
+        hub.onRequestStatusChanged(new RequestStatusChanged(100L, 2L, 5L, BorrowStatus.APPROVED));
+        hub.onRequestStatusChanged(new RequestStatusChanged(101L, 1L, 5L, BorrowStatus.REJECTED));
+        await(() -> staff.named("request").size() == 2);
+        await(() -> student.named("request").size() == 1);
+
+        assertTrue(student.named("request").get(0).contains("requestId=101"), student.sent::toString);
+        assertTrue(student.sent.stream().noneMatch(s -> s.contains("requestId=100")), student.sent::toString);
+    }
+
+    @Test
+    void clientWhoseQueueOverflows_isDisconnected() throws Exception {
+        gate = new CountDownLatch(1);
+        hub.open(user(9, UserRole.STAFF));
+        RecordingEmitter slow = emitters.get(0);
+
+        // the sender is stuck writing "connected"; distinct requests do not coalesce
+        for (long id = 1; id <= 20; id++) {
+            hub.onRequestStatusChanged(new RequestStatusChanged(id, 2L, 5L, BorrowStatus.APPROVED));
+        }
+
+        assertTrue(slow.completed);
+        assertEquals(1, hub.getDroppedCount());
+        assertEquals(0, hub.getConnectionCount());
+        gate.countDown();
+        hub.onRequestStatusChanged(new RequestStatusChanged(21L, 2L, 5L, BorrowStatus.APPROVED));
+        Thread.sleep(50);
+        assertTrue(slow.named("request").isEmpty(), slow.sent::toString);
+    }
+
+    @Test
+    void stockEventsForTheSameItem_coalesceToTheLatestQuantity() throws Exception {
+        gate = new CountDownLatch(1);
+        when(equipmentRepo.findAvailableQuantity(5L)).thenReturn(Optional.of(3), Optional.of(2), Optional.of(1));
+        hub.open(user(1));
+        RecordingEmitter client = emitters.get(0);
+
+        // the reads queue behind the blocked write, then all offer before the next drain
+        for (int i = 0; i < 3; i++) {
+            hub.onStockChanged(new EquipmentStockChanged(5L));
+        }
+        gate.countDown();
+        await(() -> !client.named("stock").isEmpty());
+        Thread.sleep(50);
+
+        List<String> stock = client.named("stock");
+        assertEquals(1, stock.size(), stock::toString);
+        assertTrue(stock.get(0).contains("availableQuantity=1"), stock::toString);
+    }
+}
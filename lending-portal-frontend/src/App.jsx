@@ -1,4 +1,4 @@
-import { useCallback, useEffect, useMemo, useState } from "react";
+import { useCallback, useEffect, useMemo, useRef, useState } from "react";
 import { Navigate, Route, Routes, useNavigate, useParams } from "react-router-dom";
 import AuthScreen from "./components/AuthScreen";
 import NavigationBar from "./components/NavigationBar";
@@ -8,6 +8,10 @@ import RequestTable from "./components/RequestTable";
 import ManageEquipmentForm from "./components/ManageEquipmentForm";
 
 const CONFIG_PATH = "/config/app.properties";
+const PAGE_LIMIT = 200;
+const NEXT_CURSOR_HEADER = "X-Next-Cursor";
+// auth calls that must not trigger a token refresh themselves
+const NO_REFRESH_PATH = /\/auth\/(login|signup|refresh|logout)$/;
 const DEFAULT_VIEW = "dashboard";
 const ROUTABLE_VIEWS = ["dashboard", "requests", "manage"];
 
@@ -53,12 +57,90 @@ function PortalApp() {
   const [authErrors, setAuthErrors] = useState({});
   const [infoText, setInfoText] = useState("");
   const [inFlightRequests, setInFlightRequests] = useState(0);
-  const trackedFetch = useCallback((...args) => {
-    setInFlightRequests((count) => count + 1);
-    return fetch(...args).finally(() => {
-      setInFlightRequests((count) => Math.max(0, count - 1));
-    });
+  const apiRootRef = useRef(apiRoot);
+  apiRootRef.current = apiRoot;
+  const tokenRef = useRef(token);
+  tokenRef.current = token;
+  const refreshing = useRef(null);
+  // trade the refresh token for a new pair; calls that hit 401 together share one exchange
+  const refreshSession = useCallback(() => {
+    if (!refreshing.current) {
+      const refreshToken = window.localStorage.getItem("lend_refresh");
+      const exchange = refreshToken
+        ? fetch(`${apiRootRef.current}/auth/refresh`, {
+            method: "POST",
+            headers: { "Content-Type": "application/json" },
+            body: JSON.stringify({ refreshToken }),
+          }).then((res) => {
+            if (!res.ok) throw new Error("Refresh failed");
+            return res.json();
+          })
+        : Promise.reject(new Error("No refresh token"));
+      refreshing.current = exchange
+        .then((data) => {
+          window.localStorage.setItem("lend_token", data.token);
+          window.localStorage.setItem("lend_refresh", data.refreshToken);
+          tokenRef.current = data.token;
+          setToken(data.token);
+          return data.token;
+        })
+        .catch((err) => {
+          window.localStorage.removeItem("lend_token");
+          window.localStorage.removeItem("lend_refresh");
+          setToken("");
+          throw err;
+        })
+        .finally(() => {
+          refreshing.current = null;
+        });
+    }
+    return refreshing.current;
   }, []);
+  // an access token rejected with 401 is refreshed and the call retried once
+  const authedFetch = useCallback(
+    async (url, options = {}) => {
+      const res = await fetch(url, options);
+      const sentToken = options.headers?.["X-Auth-Token"];
+      if (res.status !== 401 || !sentToken || NO_REFRESH_PATH.test(url)) return res;
+      let fresh = tokenRef.current;
+      if (!fresh || fresh === sentToken) {
+        try {
+          fresh = await refreshSession();
+        } catch {
+          return res;
+        }
+      }
+      return fetch(url, { ...options, headers: { ...options.headers, "X-Auth-Token": fresh } });
+    },
+    [refreshSession]
+  );
+  const trackedFetch = useCallback(
+    (...args) => {
+      setInFlightRequests((count) => count + 1);
+      return authedFetch(...args).finally(() => {
+        setInFlightRequests((count) => Math.max(0, count - 1));
+      });
+    },
+    [authedFetch]
+  );
+  // list endpoints return one page at a time; follow X-Next-Cursor until the
+  // last page so nothing past the first page is silently dropped
+  const fetchAllPages = useCallback(
+    async (url, options) => {
+      const rows = [];
+      let cursor = null;
+      do {
+        const sep = url.includes("?") ? "&" : "?";
+        const pageUrl = `${url}${sep}limit=${PAGE_LIMIT}${cursor ? `&cursor=${encodeURIComponent(cursor)}` : ""}`;
+        const res = await trackedFetch(pageUrl, options);
+        if (!res.ok) throw new Error(`list failed (${res.status})`);
+        rows.push(...(await res.json()));
+        cursor = res.headers.get(NEXT_CURSOR_HEADER);
+      } while (cursor);
+      return rows;
+    },
+    [trackedFetch]
+  );
   const loadingIndicator =
     inFlightRequests > 0 ? (
       <div className="loadingIndicator" role="status" aria-live="polite">
@@ -153,16 +235,18 @@ function PortalApp() {
       headers: { "X-Auth-Token": token },
     })
       .then((res) => {
+        // an expired access token was already refreshed by trackedFetch
         if (!res.ok) throw new Error("Auth failed");
         return res.json();
       })
-        .then((data) => {
+      .then((data) => {
         setUser(data);
         setLoginStuff({ username: "", password: "", displayName: "", confirmPassword: "" });
       })
       .catch(() => {
         setToken("");
         window.localStorage.removeItem("lend_token");
+        window.localStorage.removeItem("lend_refresh");
       });
   }, [token, apiRoot, trackedFetch]);
 
@@ -172,34 +256,79 @@ function PortalApp() {
     if (filterBucket.category) params.push(`category=${encodeURIComponent(filterBucket.category)}`);
     if (filterBucket.availableOnly) params.push("availableOnly=true");
     const query = params.length ? `?${params.join("&")}` : "";
-    trackedFetch(`${apiRoot}/equipment${query}`, {
+    fetchAllPages(`${apiRoot}/equipment${query}`, {
       headers: { "X-Auth-Token": token },
     })
-      .then((res) => {
-        if (!res.ok) throw new Error("fail list");
-        return res.json();
-      })
       .then((data) => setGearList(data))
       .catch(() => {
         setInfoText("Couldn't load equipment right now");
       });
-  }, [token, user, filterBucket, apiRoot, trackedFetch]);
+  }, [token, user, filterBucket, apiRoot, fetchAllPages]);
 
   useEffect(() => {
     if (!token || !user || !apiRoot) return;
     const mine = user?.role === "STUDENT" ? "?mine=true" : "";
-    trackedFetch(`${apiRoot}/requests${mine}`, {
+    fetchAllPages(`${apiRoot}/requests${mine}`, {
       headers: { "X-Auth-Token": token },
     })
-      .then((res) => {
-        if (!res.ok) throw new Error("fail reqs");
-        return res.json();
-      })
       .then((data) => setReqs(data))
       .catch(() => {
         setReqs([]);
       });
-  }, [token, user, apiRoot, trackedFetch]);
+  }, [token, user, apiRoot, fetchAllPages]);
+
+  // live updates pushed by the server (SSE read through fetch so the auth
+  // header can be sent); reconnects a few seconds after the stream drops
+  useEffect(() => {
+    if (!token || !user || !apiRoot) return;
+    const controller = new AbortController();
+    let retryTimer;
+    const applyEvent = (name, data) => {
+      if (name === "stock") {
+        setGearList((list) =>
+          list.map((g) => (g.id === data.equipmentId ? { ...g, availableQuantity: data.availableQuantity } : g))
+        );
+      } else if (name === "request") {
+        setReqs((list) => list.map((r) => (r.id === data.requestId ? { ...r, status: data.status } : r)));
+      }
+    };
+    const connect = async () => {
+      try {
+        const res = await authedFetch(`${apiRoot}/stream`, {
+          headers: { "X-Auth-Token": token, Accept: "text/event-stream" },
+          signal: controller.signal,
+        });
+        if (!res.ok || !res.body) throw new Error("stream unavailable");
+        const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = "";
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          let split;
+          while ((split = buffer.indexOf("\n\n")) !== -1) {
+            const block = buffer.slice(0, split);
+            buffer = buffer.slice(split + 2);
+            let name = "message";
+            const dataLines = [];
+            block.split("\n").forEach((line) => {
+              if (line.startsWith("event:")) name = line.slice(6).trim();
+              else if (line.startsWith("data:")) dataLines.push(line.slice(5));
+            });
+            if (dataLines.length) applyEvent(name, JSON.parse(dataLines.join("\n")));
+          }
+        }
+      } catch {
+        // fall through to reconnect unless the effect was torn down
+      }
+      if (!controller.signal.aborted) retryTimer = setTimeout(connect, 5000);
+    };
+    connect();
+    return () => {
+      controller.abort();
+      clearTimeout(retryTimer);
+    };
+  }, [token, user, apiRoot, authedFetch]);
 
   const handleLoginSubmit = (evt) => {
     evt.preventDefault();
@@ -246,6 +375,7 @@ function PortalApp() {
       .then((data) => {
         setToken(data.token);
         window.localStorage.setItem("lend_token", data.token);
+        if (data.refreshToken) window.localStorage.setItem("lend_refresh", data.refreshToken);
         setUser(data);
         navigate(`/${DEFAULT_VIEW}`);
         setInfoText("Welcome back!");
@@ -256,9 +386,17 @@ function PortalApp() {
   };
 
   const logout = () => {
+    if (apiRoot && token) {
+      trackedFetch(`${apiRoot}/auth/logout`, {
+        method: "POST",
+        headers: { "Content-Type": "application/json", "X-Auth-Token": token },
+        body: JSON.stringify({ refreshToken: window.localStorage.getItem("lend_refresh") }),
+      }).catch(() => {});
+    }
     setToken("");
     setUser(null);
     window.localStorage.removeItem("lend_token");
+    window.localStorage.removeItem("lend_refresh");
     setGearList([]);
     setReqs([]);
     navigate("/auth/login");
@@ -317,22 +455,24 @@ function PortalApp() {
       })
       .then((req) => {
         setReqs((curr) => [req, ...curr]);
-        setInfoText("Request submitted.");
+        setInfoText(req.status === "WAITLISTED" ? "Fully booked: you are on the waitlist." : "Request submitted.");
         navigate("/requests");
       })
       .catch((err) => {
-        setInfoText(err?.message || "Could not make request");
+        const slot = err?.suggestion;
+        const hint = slot ? ` Next free: ${slot.startDate} to ${slot.endDate}.` : "";
+        setInfoText((err?.message || "Could not make request") + hint);
       });
   };
 
   const touchRequests = () => {
     if (!apiRoot) return;
     const mine = user?.role === "STUDENT" ? "?mine=true" : "";
-    trackedFetch(`${apiRoot}/requests${mine}`, {
+    fetchAllPages(`${apiRoot}/requests${mine}`, {
       headers: { "X-Auth-Token": token },
     })
-      .then((r) => (r.ok ? r.json() : []))
-      .then((data) => setReqs(data));
+      .then((data) => setReqs(data))
+      .catch(() => {});
   };
 
   const handleViewChange = (nextView) => {
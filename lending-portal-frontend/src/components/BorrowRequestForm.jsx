@@ -7,7 +7,7 @@
  *
  * Props:
  * @param {Array<Object>} items - Array of equipment objects to choose from. Each item should include { id, itemName, availableQuantity }.
- * @param {Object} formState - Current form values: { equipmentId, startDate, endDate, qty }.
+ * @param {Object} formState - Current form values: { equipmentId, startDate, endDate, qty, waitlist }.
  * @param {function(Object):void} onChange - Handler called with the new form state when any field changes.
  * @param {function(Event):void} onSubmit - Form submit handler.
  *
@@ -64,6 +64,15 @@ const BorrowRequestForm = ({ items, formState, onChange, onSubmit, formErrors =
           {formErrors.qty && <p className="text-xs text-red-600 mt-1">{formErrors.qty}</p>}
         </div>
 
+        <label className="flex items-center gap-2 text-sm text-slate-700">
+          <input
+            type="checkbox"
+            checked={!!formState.waitlist}
+            onChange={(event) => onChange({ ...formState, waitlist: event.target.checked })}
+          />
+          Join the waitlist if these dates are fully booked
+        </label>
+
         <div>
           <button type="submit" className="w-full bg-sky-600 hover:bg-sky-700 text-white py-2 rounded-md font-semibold">
             Submit Request
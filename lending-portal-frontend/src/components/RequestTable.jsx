@@ -17,6 +17,8 @@ const RequestTable = ({ requests, role, onDecision }) => {
     switch (status) {
       case "PENDING":
         return "bg-amber-100 text-amber-800";
+      case "WAITLISTED":
+        return "bg-orange-100 text-orange-800";
       case "APPROVED":
         return "bg-emerald-100 text-emerald-800";
       case "ISSUED":